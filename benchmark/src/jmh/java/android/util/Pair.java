@@ -0,0 +1,19 @@
+package android.util;
+
+/**
+ * Replaces the android.jar stub, whose methods throw, when the library runs on a desktop JVM.
+ */
+public class Pair<F, S> {
+
+    public final F first;
+    public final S second;
+
+    public Pair(F first, S second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public static <A, B> Pair<A, B> create(A a, B b) {
+        return new Pair<A, B>(a, b);
+    }
+}
@@ -0,0 +1,52 @@
+package com.cardiomood.android.sync.benchmark;
+
+import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.cardiomood.android.sync.ormlite.SyncEntity;
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import java.util.Date;
+
+/**
+ * Entity with a generated mapper.
+ */
+@ParseClass(name = "BenchEntity")
+@DatabaseTable(tableName = "bench_entity", daoClass = BenchEntityDAO.class)
+public class BenchEntity extends SyncEntity {
+
+    @DatabaseField(generatedId = true)
+    Long id;
+
+    @DatabaseField(columnName = "name")
+    @ParseField(name = "name")
+    String name;
+
+    @DatabaseField(columnName = "count")
+    @ParseField(name = "count")
+    int count;
+
+    @DatabaseField(columnName = "value")
+    @ParseField(name = "value")
+    double value;
+
+    @DatabaseField(columnName = "time", dataType = DataType.DATE_LONG)
+    @ParseField(name = "time")
+    Date time;
+
+    @DatabaseField(columnName = "flag")
+    @ParseField(name = "flag")
+    boolean flag;
+
+    public BenchEntity() {
+    }
+
+    public BenchEntity(int i) {
+        this.name = "Entity #" + i;
+        this.count = i;
+        this.value = i * 0.5d;
+        this.time = new Date(1000000000000L + i);
+        this.flag = (i % 2 == 0);
+    }
+}
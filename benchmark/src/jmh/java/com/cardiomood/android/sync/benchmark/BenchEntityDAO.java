@@ -0,0 +1,13 @@
+package com.cardiomood.android.sync.benchmark;
+
+import com.cardiomood.android.sync.ormlite.SyncDAO;
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+
+public class BenchEntityDAO extends SyncDAO<BenchEntity, Long> {
+
+    public BenchEntityDAO(ConnectionSource connectionSource) throws SQLException {
+        super(connectionSource, BenchEntity.class);
+    }
+}
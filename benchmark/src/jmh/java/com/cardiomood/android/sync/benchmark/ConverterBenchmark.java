@@ -0,0 +1,77 @@
+package com.cardiomood.android.sync.benchmark;
+
+import com.cardiomood.android.sync.parse.CachedParseValueConverter;
+import com.cardiomood.android.sync.parse.ParseValueConverter;
+import com.cardiomood.android.sync.parse.SimpleParseValueConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value converters for pairs of source value and target type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConverterBenchmark {
+
+    @Param({"cached", "simple"})
+    public String converter;
+
+    @Param({"String->String", "Integer->int", "Integer->Long", "String->Integer", "Integer->String",
+            "Long->Date", "Date->Long", "Double->float", "Boolean->boolean", "null->int"})
+    public String pair;
+
+    private ParseValueConverter valueConverter;
+    private Object value;
+    private Class<?> targetClass;
+
+    @Setup
+    public void setUp() {
+        valueConverter = "simple".equals(converter)
+                ? new SimpleParseValueConverter() : new CachedParseValueConverter();
+        String[] types = pair.split("->");
+        value = sampleValue(types[0]);
+        targetClass = targetClass(types[1]);
+    }
+
+    @Benchmark
+    public Object convertValue() {
+        return valueConverter.convertValue(value, targetClass);
+    }
+
+    private static Object sampleValue(String type) {
+        switch (type) {
+            case "String": return "12345";
+            case "Integer": return 12345;
+            case "Long": return 1000000000000L;
+            case "Double": return 123.45d;
+            case "Date": return new Date(1000000000000L);
+            case "Boolean": return Boolean.TRUE;
+            case "null": return null;
+            default: throw new IllegalArgumentException(type);
+        }
+    }
+
+    private static Class<?> targetClass(String type) {
+        switch (type) {
+            case "String": return String.class;
+            case "int": return int.class;
+            case "Integer": return Integer.class;
+            case "Long": return Long.class;
+            case "Date": return Date.class;
+            case "float": return float.class;
+            case "boolean": return boolean.class;
+            default: throw new IllegalArgumentException(type);
+        }
+    }
+}
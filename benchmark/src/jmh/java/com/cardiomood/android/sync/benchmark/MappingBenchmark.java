@@ -0,0 +1,60 @@
+package com.cardiomood.android.sync.benchmark;
+
+import com.cardiomood.android.sync.ormlite.SyncEntity;
+import com.parse.ParseObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of one entity with a generated mapper and with reflection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MappingBenchmark {
+
+    @Param({"generated", "reflection"})
+    public String mapper;
+
+    private SyncEntity entity;
+    private SyncEntity target;
+    private ParseObject parseObject;
+
+    @Setup
+    public void setUp() {
+        if ("generated".equals(mapper)) {
+            entity = new BenchEntity(42);
+            target = new BenchEntity();
+        } else {
+            entity = new ReflectiveBenchEntity(42);
+            target = new ReflectiveBenchEntity();
+        }
+        parseObject = SyncEntity.toParseObject(entity);
+    }
+
+    @Benchmark
+    public SyncEntity fromParseObject() {
+        SyncEntity.fromParseObject(parseObject, target);
+        return target;
+    }
+
+    @Benchmark
+    public ParseObject toNewParseObject() {
+        return SyncEntity.toParseObject(entity);
+    }
+
+    @Benchmark
+    public ParseObject toExistingParseObject() {
+        SyncEntity.toParseObject(entity, parseObject);
+        return parseObject;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cardiomood.android.sync.benchmark;
+
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.cardiomood.android.sync.tools.ReflectionUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Field introspection as done when building the mapping of an entity class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReflectionBenchmark {
+
+    @Benchmark
+    public void doWithFields(final Blackhole blackhole) {
+        ReflectionUtils.doWithFields(ReflectiveBenchEntity.class, new ReflectionUtils.FieldCallback() {
+            @Override
+            public void doWith(Field field) {
+                blackhole.consume(field.getAnnotation(ParseField.class));
+            }
+        });
+    }
+}
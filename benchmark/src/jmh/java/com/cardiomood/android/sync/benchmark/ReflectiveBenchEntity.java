@@ -0,0 +1,40 @@
+package com.cardiomood.android.sync.benchmark;
+
+import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.cardiomood.android.sync.ormlite.SyncEntity;
+
+import java.util.Date;
+
+/**
+ * Same fields as {@link BenchEntity}, but private without accessors, so it's mapped by reflection.
+ */
+@ParseClass(name = "ReflectiveBenchEntity")
+public class ReflectiveBenchEntity extends SyncEntity {
+
+    @ParseField(name = "name")
+    private String name;
+
+    @ParseField(name = "count")
+    private int count;
+
+    @ParseField(name = "value")
+    private double value;
+
+    @ParseField(name = "time")
+    private Date time;
+
+    @ParseField(name = "flag")
+    private boolean flag;
+
+    public ReflectiveBenchEntity() {
+    }
+
+    public ReflectiveBenchEntity(int i) {
+        this.name = "Entity #" + i;
+        this.count = i;
+        this.value = i * 0.5d;
+        this.time = new Date(1000000000000L + i);
+        this.flag = (i % 2 == 0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.cardiomood.android.sync.benchmark.BenchEntity;
+import com.cardiomood.android.sync.benchmark.BenchEntityDAO;
+import com.cardiomood.android.sync.parse.ParseObjectInternals;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.table.TableUtils;
+import com.parse.ParseObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The diff of {@link SyncHelper#synObjects} with the engines that don't need the Android database,
+ * against an in-memory SQLite database, including the query of the local delta. {@code overlap} is
+ * the share of the remote delta that is modified locally too, half of the rest exists locally but
+ * isn't modified and the other half is new.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DiffBenchmark {
+
+    private static final long T0 = 1000000000000L;
+
+    @Param({"hash", "merge", "indexed"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double overlap;
+
+    private JdbcConnectionSource connectionSource;
+    private BenchEntityDAO dao;
+    private DiffEngine diffEngine;
+    private EntityMapping<BenchEntity> mapping;
+    private SyncCheckpoint checkpoint;
+    private List<ParseObject> remoteObjects;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("merge".equals(engine)) {
+            diffEngine = new MergeDiffEngine();
+        } else if ("indexed".equals(engine)) {
+            diffEngine = new IndexedDiffEngine();
+        } else {
+            diffEngine = new HashDiffEngine();
+        }
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        TableUtils.createTable(connectionSource, BenchEntity.class);
+        dao = new BenchEntityDAO(connectionSource);
+        mapping = EntityMapping.forClass(BenchEntity.class);
+        checkpoint = new SyncCheckpoint(mapping.getParseClassName(), null, new Date(T0));
+
+        remoteObjects = new ArrayList<>(size);
+        final List<BenchEntity> stored = new ArrayList<>(size * 2);
+        int shared = (int) (size * overlap);
+        for (int i = 0; i < size; i++) {
+            // local delta
+            stored.add(newEntity(i, "L" + i, T0 + 10 + i));
+
+            String syncId;
+            if (i < shared) {
+                syncId = "L" + i;
+            } else {
+                syncId = "R" + i;
+                if (i % 2 == 0) {
+                    // known locally, but not modified
+                    stored.add(newEntity(i, syncId, T0 - 10));
+                }
+            }
+            ParseObject remote = mapping.toParseObject(newEntity(i, null, 0));
+            ParseObjectInternals.setMetadata(remote, syncId, new Date(T0), new Date(T0 + 20 + i));
+            remoteObjects.add(remote);
+        }
+        TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (BenchEntity entity : stored) {
+                    dao.create(entity);
+                }
+                return null;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connectionSource.close();
+    }
+
+    @Benchmark
+    public SyncDiff<BenchEntity> diff() throws Exception {
+        SyncDiff<BenchEntity> diff = new SyncDiff<>(mapping, dao, null, checkpoint, "sync_user_id", null);
+        diff.setRemoteObjects(remoteObjects);
+        diffEngine.diff(diff);
+        return diff;
+    }
+
+    private static BenchEntity newEntity(int i, String syncId, long syncDate) {
+        BenchEntity entity = new BenchEntity(i);
+        entity.setSyncId(syncId);
+        entity.setSyncDate(new Date(syncDate));
+        return entity;
+    }
+}
@@ -0,0 +1,17 @@
+package android.database;
+
+/**
+ * Replaces the android.jar interface with the methods the library uses.
+ */
+public interface Cursor {
+
+    boolean moveToNext();
+
+    boolean isNull(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    String getString(int columnIndex);
+
+    void close();
+}
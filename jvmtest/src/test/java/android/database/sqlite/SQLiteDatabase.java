@@ -0,0 +1,111 @@
+package android.database.sqlite;
+
+import android.database.Cursor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Replaces the android.jar stub with a JDBC connection. Like on Android, the arguments of
+ * {@link #rawQuery(String, String[])} are bound as text.
+ */
+public class SQLiteDatabase {
+
+    private final Connection connection;
+
+    public SQLiteDatabase(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void execSQL(String sql) {
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(sql);
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public SQLiteStatement compileStatement(String sql) {
+        try {
+            return new SQLiteStatement(connection.prepareStatement(sql));
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        try {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            for (int i = 0; selectionArgs != null && i < selectionArgs.length; i++) {
+                statement.setString(i + 1, selectionArgs[i]);
+            }
+            return new ResultSetCursor(statement);
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static class ResultSetCursor implements Cursor {
+
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+
+        ResultSetCursor(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.resultSet = statement.executeQuery();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            try {
+                return resultSet.next();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public boolean isNull(int columnIndex) {
+            try {
+                return resultSet.getObject(columnIndex + 1) == null;
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public int getInt(int columnIndex) {
+            try {
+                return resultSet.getInt(columnIndex + 1);
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            try {
+                return resultSet.getString(columnIndex + 1);
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
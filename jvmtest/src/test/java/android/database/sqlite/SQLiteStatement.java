@@ -0,0 +1,55 @@
+package android.database.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Replaces the android.jar stub with a JDBC prepared statement.
+ */
+public class SQLiteStatement {
+
+    private final PreparedStatement statement;
+
+    SQLiteStatement(PreparedStatement statement) {
+        this.statement = statement;
+    }
+
+    public void bindString(int index, String value) {
+        try {
+            statement.setString(index, value);
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public void bindLong(int index, long value) {
+        try {
+            statement.setLong(index, value);
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public long executeInsert() {
+        try {
+            statement.executeUpdate();
+            ResultSet keys = statement.getGeneratedKeys();
+            try {
+                return keys.next() ? keys.getLong(1) : -1L;
+            } finally {
+                keys.close();
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public void close() {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+@ParseClass(name = "ChildEntity")
+@DatabaseTable(tableName = "child_entity", daoClass = ChildEntityDAO.class)
+public class ChildEntity extends SyncEntity {
+
+    @DatabaseField(generatedId = true)
+    Long id;
+
+    @DatabaseField(columnName = "name")
+    @ParseField(name = "name")
+    String name;
+}
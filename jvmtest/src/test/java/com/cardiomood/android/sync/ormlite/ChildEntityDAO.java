@@ -0,0 +1,12 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+
+public class ChildEntityDAO extends SyncDAO<ChildEntity, Long> {
+
+    public ChildEntityDAO(ConnectionSource connectionSource) throws SQLException {
+        super(connectionSource, ChildEntity.class);
+    }
+}
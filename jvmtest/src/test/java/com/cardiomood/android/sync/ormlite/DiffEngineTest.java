@@ -0,0 +1,183 @@
+package com.cardiomood.android.sync.ormlite;
+
+import android.util.Pair;
+
+import com.cardiomood.android.sync.parse.ParseObjectInternals;
+import com.cardiomood.android.sync.transport.InMemoryTransport;
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import com.parse.ParseObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Every diff engine makes the same decisions for the same local and remote deltas.
+ */
+@RunWith(Parameterized.class)
+public class DiffEngineTest {
+
+    private static final String PARSE_CLASS = "TestEntity";
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.asList(new Object[][] {
+                {"hash", new HashDiffEngine()},
+                {"merge", new MergeDiffEngine()},
+                {"indexed", new IndexedDiffEngine()},
+                {"sql", new SqlDiffEngine()}
+        });
+    }
+
+    private final DiffEngine diffEngine;
+
+    private OrmLiteSqliteOpenHelper dbHelper;
+    private TestEntityDAO dao;
+    private InMemoryTransport transport;
+    private SyncHelper syncHelper;
+    private Date lastSync;
+
+    public DiffEngineTest(String name, DiffEngine diffEngine) {
+        this.diffEngine = diffEngine;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        JdbcConnectionSource connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        TableUtils.createTable(connectionSource, TestEntity.class);
+        dbHelper = new OrmLiteSqliteOpenHelper(connectionSource);
+        dao = dbHelper.getDao(TestEntity.class);
+        transport = new InMemoryTransport(new Random(42));
+        syncHelper = new SyncHelper(dbHelper);
+        syncHelper.setTransport(transport);
+        syncHelper.setMetrics(SyncMetrics.NONE);
+        lastSync = new Date(System.currentTimeMillis() - 60000L);
+        syncHelper.setLastSyncDate(lastSync);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void pullsPushesAndTouchesTheSameObjects() throws Exception {
+        ParseObject remoteNewer = putRemote("remote newer", null);
+        dao.create(newLocal("stale", remoteNewer, remoteNewer.getUpdatedAt().getTime() - 1000L));
+        ParseObject localNewer = putRemote("stale", null);
+        dao.create(newLocal("local newer", localNewer, localNewer.getUpdatedAt().getTime() + 1000L));
+        ParseObject sameTime = putRemote("remote at the same time", null);
+        dao.create(newLocal("local at the same time", sameTime, sameTime.getUpdatedAt().getTime()));
+        ParseObject sameContent = putRemote("same content", null);
+        dao.create(newLocal("same content", sameContent, sameContent.getUpdatedAt().getTime() - 1000L));
+        // known locally, but not modified since the last synchronization
+        ParseObject known = putRemote("remote known", null);
+        dao.create(newLocal("stale", known, lastSync.getTime() - 1000L));
+        ParseObject created = putRemote("remote created", null);
+        // not in the remote delta
+        ParseObject fetched = putRemote("stale", new Date(lastSync.getTime() - 5000L));
+        dao.create(newLocal("local fetched", fetched, lastSync.getTime() + 1000L));
+        ParseObject deleted = putRemote("stale", new Date(lastSync.getTime() - 5000L));
+        TestEntity deletedLocal = newLocal("local deleted", deleted, lastSync.getTime() + 1000L);
+        deletedLocal.setDeleted(true);
+        dao.create(deletedLocal);
+        TestEntity createdLocal = new TestEntity("local created", null, new Date(lastSync.getTime() + 1000L));
+        dao.create(createdLocal);
+        TestEntity unchangedLocal = new TestEntity("local unchanged", null, new Date(lastSync.getTime() - 1000L));
+        dao.create(unchangedLocal);
+        RecordingCallback callback = new RecordingCallback();
+
+        SyncResult result = syncHelper.synObjects(TestEntity.class, false, callback, diffEngine);
+
+        assertEquals(set(remoteNewer.getObjectId(), known.getObjectId(), created.getObjectId()), callback.pulled);
+        assertEquals(set("local newer", "local fetched", "local created"), callback.pushed);
+        assertEquals(3, result.getPulled());
+        assertEquals(3, result.getPushed());
+        assertEquals(1, result.getTouched());
+
+        assertEquals("remote newer", dao.findBySyncId(remoteNewer.getObjectId()).name);
+        assertEquals("remote known", dao.findBySyncId(known.getObjectId()).name);
+        assertEquals("remote created", dao.findBySyncId(created.getObjectId()).name);
+        assertEquals("local newer", remoteName(localNewer));
+        assertEquals("local fetched", remoteName(fetched));
+        String createdSyncId = dao.queryForId(createdLocal.id).getSyncId();
+        assertNotNull(createdSyncId);
+        assertEquals("local created", transport.get(PARSE_CLASS, createdSyncId).getString("name"));
+
+        // neither side of an equal timestamp wins
+        assertEquals("local at the same time", dao.findBySyncId(sameTime.getObjectId()).name);
+        assertEquals("remote at the same time", remoteName(sameTime));
+        assertEquals("stale", remoteName(deleted));
+        assertEquals(null, dao.queryForId(unchangedLocal.id).getSyncId());
+        assertEquals(9, transport.count(PARSE_CLASS));
+    }
+
+    private ParseObject putRemote(String name, Date updatedAt) {
+        ParseObject remote = ParseObject.create(PARSE_CLASS);
+        remote.put("name", name);
+        ParseObjectInternals.setMetadata(remote, null, null, updatedAt);
+        transport.put(remote);
+        return remote;
+    }
+
+    private String remoteName(ParseObject remote) {
+        return transport.get(PARSE_CLASS, remote.getObjectId()).getString("name");
+    }
+
+    private static TestEntity newLocal(String name, ParseObject remote, long syncDate) {
+        TestEntity local = new TestEntity(name, null, new Date(syncDate));
+        local.setSyncId(remote.getObjectId());
+        return local;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    /**
+     * Records the objectIds of the pulled objects and the names of the pushed ones.
+     */
+    private static class RecordingCallback implements SyncHelper.SyncCallback<TestEntity> {
+
+        final Set<String> pulled = new HashSet<>();
+        final Set<String> pushed = new HashSet<>();
+
+        @Override
+        public void onSaveLocally(TestEntity localObject, ParseObject remoteObject) {
+        }
+
+        @Override
+        public void onSaveRemotely(TestEntity localObject, ParseObject remoteObject) {
+        }
+
+        @Override
+        public void beforeSync(List<Pair<TestEntity, ParseObject>> toSaveLocally,
+                               List<Pair<TestEntity, ParseObject>> toSaveRemotely) {
+            for (Pair<TestEntity, ParseObject> p : toSaveLocally) {
+                pulled.add(p.second.getObjectId());
+            }
+            for (Pair<TestEntity, ParseObject> p : toSaveRemotely) {
+                pushed.add(p.first.name);
+            }
+        }
+
+        @Override
+        public void afterSync() {
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+@ParseClass(name = "OtherEntity")
+@DatabaseTable(tableName = "other_entity", daoClass = OtherEntityDAO.class)
+public class OtherEntity extends SyncEntity {
+
+    @DatabaseField(generatedId = true)
+    Long id;
+
+    @DatabaseField(columnName = "name")
+    @ParseField(name = "name")
+    String name;
+}
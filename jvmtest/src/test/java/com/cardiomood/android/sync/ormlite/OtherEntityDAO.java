@@ -0,0 +1,12 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+
+public class OtherEntityDAO extends SyncDAO<OtherEntity, Long> {
+
+    public OtherEntityDAO(ConnectionSource connectionSource) throws SQLException {
+        super(connectionSource, OtherEntity.class);
+    }
+}
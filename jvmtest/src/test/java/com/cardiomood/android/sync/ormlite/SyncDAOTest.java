@@ -0,0 +1,128 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The cache of ids by syncId.
+ */
+public class SyncDAOTest {
+
+    private JdbcConnectionSource connectionSource;
+    private CountingDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        TableUtils.createTable(connectionSource, TestEntity.class);
+        dao = new CountingDAO(connectionSource);
+        dao.setSyncIdCacheSize(10);
+    }
+
+    @After
+    public void tearDown() {
+        connectionSource.closeQuietly();
+    }
+
+    @Test
+    public void findsWrittenRowsThroughTheCache() throws Exception {
+        TestEntity entity = create("a");
+
+        assertEquals(entity.id, dao.findBySyncId("a").id);
+        assertEquals(1, dao.idQueries);
+        assertEquals(entity.id, dao.findBySyncIds(Collections.singleton("a")).get("a").id);
+    }
+
+    @Test
+    public void doesNotCacheWhenDisabled() throws Exception {
+        dao.setSyncIdCacheSize(0);
+        TestEntity entity = create("a");
+
+        assertEquals(entity.id, dao.findBySyncId("a").id);
+        assertEquals(0, dao.idQueries);
+    }
+
+    @Test
+    public void evictsDeletedRows() throws Exception {
+        TestEntity deleted = create("a");
+        TestEntity deletedById = create("b");
+        TestEntity deletedByIds = create("c");
+
+        dao.delete(deleted);
+        dao.deleteById(deletedById.id);
+        dao.deleteIds(Arrays.asList(deletedByIds.id));
+
+        assertNull(dao.findBySyncId("a"));
+        assertNull(dao.findBySyncId("b"));
+        assertNull(dao.findBySyncId("c"));
+        assertEquals(0, dao.idQueries);
+    }
+
+    @Test
+    public void clearsTheCacheOnPreparedDeletes() throws Exception {
+        create("a");
+        TestEntity kept = create("b");
+
+        DeleteBuilder<TestEntity, Long> delete = dao.deleteBuilder();
+        delete.where().eq(SyncHelper.DB_OBJECT_ID_FIELD, "a");
+        delete.delete();
+
+        assertNull(dao.findBySyncId("a"));
+        assertEquals(kept.id, dao.findBySyncId("b").id);
+        assertEquals(0, dao.idQueries);
+    }
+
+    @Test
+    public void fallsBackWhenTheSyncIdChangesOutsideTheDao() throws Exception {
+        TestEntity entity = create("a");
+        dao.executeRaw("UPDATE test_entity SET sync_id = 'b' WHERE id = " + entity.id);
+
+        assertNull(dao.findBySyncId("a"));
+        assertEquals(entity.id, dao.findBySyncId("b").id);
+
+        create("c");
+        dao.executeRaw("UPDATE test_entity SET sync_id = 'd' WHERE sync_id = 'c'");
+        Map<String, TestEntity> found = dao.findBySyncIds(Arrays.asList("b", "c", "d"));
+
+        assertEquals(2, found.size());
+        assertEquals(entity.id, found.get("b").id);
+        assertEquals("d", found.get("d").getSyncId());
+    }
+
+    private TestEntity create(String syncId) throws SQLException {
+        TestEntity entity = new TestEntity(syncId, null, new Date());
+        entity.setSyncId(syncId);
+        dao.create(entity);
+        return entity;
+    }
+
+    private static class CountingDAO extends TestEntityDAO {
+
+        int idQueries = 0;
+
+        CountingDAO(ConnectionSource connectionSource) throws SQLException {
+            super(connectionSource);
+        }
+
+        @Override
+        public TestEntity queryForId(Long id) throws SQLException {
+            idQueries++;
+            return super.queryForId(id);
+        }
+    }
+}
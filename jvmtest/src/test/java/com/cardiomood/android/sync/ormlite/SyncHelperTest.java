@@ -0,0 +1,337 @@
+package com.cardiomood.android.sync.ormlite;
+
+import android.util.Pair;
+
+import com.cardiomood.android.sync.SyncException;
+import com.cardiomood.android.sync.transport.InMemoryTransport;
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import com.parse.ParseObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Synchronizes an in-memory SQLite database with an {@link InMemoryTransport}.
+ */
+public class SyncHelperTest {
+
+    private static final String PARSE_CLASS = "TestEntity";
+
+    private OrmLiteSqliteOpenHelper dbHelper;
+    private TestEntityDAO dao;
+    private InMemoryTransport transport;
+    private SyncHelper syncHelper;
+
+    @Before
+    public void setUp() throws Exception {
+        JdbcConnectionSource connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        TableUtils.createTable(connectionSource, TestEntity.class);
+        dbHelper = new OrmLiteSqliteOpenHelper(connectionSource);
+        dao = dbHelper.getDao(TestEntity.class);
+        transport = new InMemoryTransport(new Random(42));
+        syncHelper = new SyncHelper(dbHelper);
+        syncHelper.setTransport(transport);
+        syncHelper.setMetrics(SyncMetrics.NONE);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void pullsRemoteObjects() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            putRemote("remote " + i, null);
+        }
+
+        SyncResult result = syncHelper.synObjects(TestEntity.class);
+
+        assertEquals(5, result.getPulled());
+        assertEquals(0, result.getPushed());
+        assertEquals(5, dao.countOf());
+        for (TestEntity entity : dao.queryForAll()) {
+            assertEquals(entity.name, transport.get(PARSE_CLASS, entity.getSyncId()).getString("name"));
+        }
+    }
+
+    @Test
+    public void pullsRemoteObjectsWhileStreaming() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            putRemote("remote " + i, null);
+        }
+        syncHelper.setStreaming(true);
+        syncHelper.setRemotePageSize(10);
+
+        SyncResult result = syncHelper.synObjects(TestEntity.class);
+
+        assertEquals(25, result.getPulled());
+        assertEquals(25, dao.countOf());
+    }
+
+    @Test
+    public void pushesLocalObjects() throws Exception {
+        TestEntity local = new TestEntity("local", null, new Date());
+        dao.create(local);
+
+        SyncResult result = syncHelper.synObjects(TestEntity.class);
+
+        assertEquals(1, result.getPushed());
+        assertEquals(1, transport.count(PARSE_CLASS));
+        String syncId = dao.queryForId(local.id).getSyncId();
+        assertNotNull(syncId);
+        assertEquals("local", transport.get(PARSE_CLASS, syncId).getString("name"));
+    }
+
+    @Test
+    public void outboxPushesOnlyTheChangesOfTheUser() throws Exception {
+        dao.setOutboxEnabled(true);
+        syncHelper.setUseOutbox(true);
+        syncHelper.setUserId("alice");
+        putRemote("remote", "alice");
+        dao.create(new TestEntity("mine", "alice", new Date()));
+        dao.create(new TestEntity("theirs", "bob", new Date()));
+
+        SyncResult result = syncHelper.synObjects(TestEntity.class, true);
+
+        assertEquals(1, result.getPulled());
+        assertEquals(1, result.getPushed());
+        // pulled objects are not recorded, the change of bob stays in the outbox
+        assertEquals(1, dao.getOutboxDao().countOf());
+
+        result = syncHelper.synObjects(TestEntity.class, true);
+
+        assertEquals(0, result.getPushed());
+        assertEquals(2, transport.count(PARSE_CLASS));
+    }
+
+    @Test
+    public void checkpointSkipsSynchronizedObjects() throws Exception {
+        syncHelper.setUseCheckpoints(true);
+        putRemote("first", null);
+        putRemote("second", null);
+
+        assertEquals(2, syncHelper.synObjects(TestEntity.class).getPulled());
+        assertEquals(0, syncHelper.synObjects(TestEntity.class).getPulled());
+
+        putRemote("third", null);
+
+        assertEquals(1, syncHelper.synObjects(TestEntity.class).getPulled());
+        assertEquals(3, dao.countOf());
+    }
+
+    @Test
+    public void checkpointResumesAfterTheLastSavedTransaction() throws Exception {
+        syncHelper.setUseCheckpoints(true);
+        syncHelper.setLocalBatchSize(2);
+        List<ParseObject> remoteObjects = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            remoteObjects.add(putRemote("remote " + i, null));
+        }
+
+        try {
+            syncHelper.synObjects(TestEntity.class, false, new TestCallback(4));
+            fail("the synchronization must fail");
+        } catch (SyncException expected) {
+            // the first transaction is committed, the second is rolled back
+        }
+        assertEquals(2, dao.countOf());
+        SyncCheckpoint checkpoint = DaoManager.createDao(dbHelper.getConnectionSource(), SyncCheckpoint.class)
+                .queryForAll().get(0);
+        assertEquals(remoteObjects.get(1).getObjectId(), checkpoint.getResumeObjectId());
+
+        assertEquals(3, syncHelper.synObjects(TestEntity.class).getPulled());
+        assertEquals(5, dao.countOf());
+    }
+
+    @Test
+    public void bootstrapsEmptyTablesAsynchronously() throws Exception {
+        syncHelper.ensureIndexes(TestEntity.class, false);
+        dao.executeRaw("CREATE INDEX test_entity_name ON test_entity (name)");
+        syncHelper.setBootstrap(true);
+        syncHelper.setRemotePageSize(2);
+        for (int i = 0; i < 5; i++) {
+            putRemote("remote " + i, null);
+        }
+        TestCallback callback = new TestCallback(0);
+
+        Task<SyncResult> task = syncHelper.synObjectsAsync(TestEntity.class, false, callback);
+        task.waitForCompletion();
+
+        assertNull(task.getError());
+        assertEquals(5, task.getResult().getPulled());
+        assertEquals(5, dao.countOf());
+        // one batch per remote page
+        assertEquals(3, callback.batches);
+        assertTrue(indexes().containsAll(Arrays.asList("test_entity_name",
+                "test_entity" + SyncIndexes.DELTA_INDEX_SUFFIX, "test_entity" + SyncIndexes.LIVE_INDEX_SUFFIX)));
+        assertEquals(0, deferredIndexes());
+    }
+
+    @Test
+    public void restoresIndexesLeftOverByAnInterruptedBootstrap() throws Exception {
+        syncHelper.ensureIndexes(TestEntity.class, false);
+        SyncIndexes.deferIndexes(dao);
+        dao.create(new TestEntity("local", null, new Date()));
+        assertFalse(indexes().contains("test_entity" + SyncIndexes.DELTA_INDEX_SUFFIX));
+        syncHelper.setBootstrap(true);
+
+        syncHelper.synObjects(TestEntity.class);
+
+        assertTrue(indexes().contains("test_entity" + SyncIndexes.DELTA_INDEX_SUFFIX));
+        assertEquals(0, deferredIndexes());
+    }
+
+    @Test
+    public void syncAllSkipsTheChildrenOfAFailedClass() throws Exception {
+        TableUtils.createTable(dbHelper.getConnectionSource(), ChildEntity.class);
+        TableUtils.createTable(dbHelper.getConnectionSource(), OtherEntity.class);
+        putRemote("parent", null);
+        transport.put(ParseObject.create("OtherEntity"));
+        ResultMetrics metrics = new ResultMetrics(null);
+        syncHelper.setMetrics(metrics);
+
+        List<SyncResult> results = syncHelper.syncAll(new SyncPlan()
+                .add(TestEntity.class, false, new TestCallback(1))
+                .add(ChildEntity.class, false)
+                .add(OtherEntity.class, false)
+                .dependsOn(ChildEntity.class, TestEntity.class));
+
+        assertNotNull(results.get(0).getError());
+        assertTrue(results.get(1).isSkipped());
+        assertTrue(results.get(2).isSuccessful());
+        assertEquals(1, results.get(2).getPulled());
+        assertEquals(3, metrics.results.size());
+        assertEquals(3, new HashSet<>(metrics.results).size());
+    }
+
+    @Test
+    public void syncAllReportsAFaultedClassOnce() throws Exception {
+        TableUtils.createTable(dbHelper.getConnectionSource(), ChildEntity.class);
+        ResultMetrics metrics = new ResultMetrics(TestEntity.class);
+        syncHelper.setMetrics(metrics);
+
+        List<SyncResult> results = syncHelper.syncAll(new SyncPlan()
+                .add(TestEntity.class, false)
+                .add(ChildEntity.class, false)
+                .dependsOn(ChildEntity.class, TestEntity.class));
+
+        assertTrue(results.get(0).getError() instanceof IllegalStateException);
+        assertTrue(results.get(1).isSkipped());
+        assertEquals(Arrays.<Class<?>>asList(TestEntity.class, ChildEntity.class), metrics.results);
+    }
+
+    private Set<String> indexes() throws SQLException {
+        Set<String> names = new HashSet<>();
+        for (String[] row : dao.queryRaw("SELECT name FROM sqlite_master WHERE type = 'index'"
+                + " AND tbl_name = 'test_entity'").getResults()) {
+            names.add(row[0]);
+        }
+        return names;
+    }
+
+    private long deferredIndexes() throws SQLException {
+        return dao.queryRawValue("SELECT COUNT(*) FROM " + SyncIndexes.DEFERRED_INDEX_TABLE);
+    }
+
+    private ParseObject putRemote(String name, String userId) {
+        ParseObject remote = ParseObject.create(PARSE_CLASS);
+        remote.put("name", name);
+        if (userId != null) {
+            remote.put("userId", userId);
+        }
+        transport.put(remote);
+        return remote;
+    }
+
+
+    /**
+     * Records the classes of the reported results and fails on the first result of the given class.
+     */
+    private static class ResultMetrics implements SyncMetrics {
+
+        private final Class<?> failingClass;
+        final List<Class<?>> results = Collections.synchronizedList(new ArrayList<Class<?>>());
+
+        ResultMetrics(Class<?> failingClass) {
+            this.failingClass = failingClass;
+        }
+
+        @Override
+        public void onPhase(Class<? extends SyncEntity> entityClass, Phase phase, long nanos) {
+        }
+
+        @Override
+        public void onFailure(Class<? extends SyncEntity> entityClass, Exception error) {
+        }
+
+        @Override
+        public void onResult(SyncResult result) {
+            results.add(result.getEntityClass());
+            if (result.getEntityClass().equals(failingClass) && result.getError() == null) {
+                throw new IllegalStateException("Failed to report " + failingClass.getName());
+            }
+        }
+    }
+
+    /**
+     * Counts the batches and fails when the given object is saved locally.
+     */
+    private static class TestCallback implements SyncHelper.SyncCallback<TestEntity> {
+
+        private final int failAt;
+        private int saved = 0;
+        private int batches = 0;
+
+        /**
+         * @param failAt number of the local save that fails, 0 to never fail
+         */
+        TestCallback(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void onSaveLocally(TestEntity localObject, ParseObject remoteObject) throws Exception {
+            if (++saved == failAt) {
+                throw new IllegalStateException("Failed to save " + remoteObject.getObjectId());
+            }
+        }
+
+        @Override
+        public void onSaveRemotely(TestEntity localObject, ParseObject remoteObject) {
+        }
+
+        @Override
+        public void beforeSync(List<Pair<TestEntity, ParseObject>> toSaveLocally,
+                               List<Pair<TestEntity, ParseObject>> toSaveRemotely) {
+            batches++;
+        }
+
+        @Override
+        public void afterSync() {
+        }
+    }
+}
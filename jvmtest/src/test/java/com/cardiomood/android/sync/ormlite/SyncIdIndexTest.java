@@ -0,0 +1,49 @@
+package com.cardiomood.android.sync.ormlite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SyncIdIndexTest {
+
+    // same hash code, the last slot of a table of 8
+    private static final String[] COLLIDING = {"Aa7", "BB7", "C#7"};
+    private static final String MISSING = "D\u00047";
+    // first slot of a table of 8
+    private static final String FIRST_SLOT = "0";
+
+    @Test
+    public void findsCollidingKeysAcrossTheEndOfTheTable() {
+        for (String key : COLLIDING) {
+            assertEquals(MISSING.hashCode(), key.hashCode());
+        }
+        SyncIdIndex index = new SyncIdIndex(4);
+        for (int i = 0; i < COLLIDING.length; i++) {
+            index.put(COLLIDING[i], i);
+        }
+        index.put(FIRST_SLOT, 3);
+
+        for (int i = 0; i < COLLIDING.length; i++) {
+            assertEquals(i, index.get(COLLIDING[i]));
+        }
+        assertEquals(3, index.get(FIRST_SLOT));
+        assertEquals(-1, index.get(MISSING));
+    }
+
+    @Test
+    public void replacesThePositionOfAKey() {
+        SyncIdIndex index = new SyncIdIndex(4);
+        index.put(COLLIDING[0], 0);
+        index.put(COLLIDING[1], 1);
+        index.put(COLLIDING[1], 5);
+
+        assertEquals(0, index.get(COLLIDING[0]));
+        assertEquals(5, index.get(COLLIDING[1]));
+        assertEquals(-1, index.get(COLLIDING[2]));
+    }
+
+    @Test
+    public void handlesEmptyIndexes() {
+        assertEquals(-1, new SyncIdIndex(0).get(FIRST_SLOT));
+    }
+}
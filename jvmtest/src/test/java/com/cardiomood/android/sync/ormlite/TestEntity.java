@@ -0,0 +1,33 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import java.util.Date;
+
+@ParseClass(name = "TestEntity")
+@DatabaseTable(tableName = "test_entity", daoClass = TestEntityDAO.class)
+public class TestEntity extends SyncEntity {
+
+    @DatabaseField(generatedId = true)
+    Long id;
+
+    @DatabaseField(columnName = "sync_user_id")
+    @ParseField(name = "userId")
+    String userId;
+
+    @DatabaseField(columnName = "name")
+    @ParseField(name = "name")
+    String name;
+
+    public TestEntity() {
+    }
+
+    public TestEntity(String name, String userId, Date syncDate) {
+        this.name = name;
+        this.userId = userId;
+        setSyncDate(syncDate);
+    }
+}
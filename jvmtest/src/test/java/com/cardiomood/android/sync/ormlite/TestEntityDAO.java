@@ -0,0 +1,12 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+
+public class TestEntityDAO extends SyncDAO<TestEntity, Long> {
+
+    public TestEntityDAO(ConnectionSource connectionSource) throws SQLException {
+        super(connectionSource, TestEntity.class);
+    }
+}
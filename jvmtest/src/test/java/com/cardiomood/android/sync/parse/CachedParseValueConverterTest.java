@@ -0,0 +1,69 @@
+package com.cardiomood.android.sync.parse;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CachedParseValueConverterTest {
+
+    private final CachedParseValueConverter converter = new CachedParseValueConverter();
+
+    @Test
+    public void convertsNullToPrimitiveDefaults() {
+        assertEquals(0, (int) converter.convertValue(null, int.class));
+        assertEquals(0L, (long) converter.convertValue(null, long.class));
+        assertEquals(false, converter.convertValue(null, boolean.class));
+        assertNull(converter.convertValue(null, Integer.class));
+        assertNull(converter.convertValue(null, String.class));
+    }
+
+    @Test
+    public void convertsWholeDoubleToInt() {
+        assertEquals(3, (int) converter.convertValue(3.0d, int.class));
+        assertEquals(Integer.valueOf(-7), converter.convertValue(-7.0f, Integer.class));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsFractionalDouble() {
+        converter.convertValue(3.5d, int.class);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsLongOutOfIntRange() {
+        converter.convertValue(1L << 40, int.class);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsBigIntegerOutOfLongRange() {
+        converter.convertValue(BigInteger.ONE.shiftLeft(64), long.class);
+    }
+
+    @Test
+    public void convertsBigIntegerInLongRange() {
+        assertEquals(Long.MAX_VALUE, (long) converter.convertValue(BigInteger.valueOf(Long.MAX_VALUE), long.class));
+    }
+
+    @Test
+    public void convertsBetweenDatesAndLongs() {
+        assertEquals(Long.valueOf(1234L), converter.convertValue(new Date(1234L), Long.class));
+        assertEquals(new Date(1234L), converter.convertValue(1234L, Date.class));
+    }
+
+    @Test
+    public void parsesStrings() {
+        assertEquals(Integer.valueOf(42), converter.convertValue("42", Integer.class));
+        assertEquals(1.5d, converter.convertValue("1.5", double.class), 0.0d);
+        assertEquals("42", converter.convertValue(42, String.class));
+    }
+
+    @Test
+    public void convertsUnsupportedPairsToNull() {
+        assertNull(converter.convertValue(Boolean.TRUE, Date.class));
+        assertNull(converter.convertValue("text", List.class));
+    }
+}
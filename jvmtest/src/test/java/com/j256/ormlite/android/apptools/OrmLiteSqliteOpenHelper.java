@@ -0,0 +1,46 @@
+package com.j256.ormlite.android.apptools;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+
+/**
+ * Replaces the ormlite-android helper, which needs the Android runtime, when the library runs on a desktop JVM.
+ * The DAOs and the database share the single connection of the JDBC connection source.
+ */
+public class OrmLiteSqliteOpenHelper {
+
+    private final JdbcConnectionSource connectionSource;
+
+    public OrmLiteSqliteOpenHelper(JdbcConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+    }
+
+    public ConnectionSource getConnectionSource() {
+        return connectionSource;
+    }
+
+    public SQLiteDatabase getWritableDatabase() {
+        try {
+            return new SQLiteDatabase(((JdbcDatabaseConnection) connectionSource.getReadWriteConnection())
+                    .getInternalConnection());
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public <D extends Dao<T, ?>, T> D getDao(Class<T> clazz) throws SQLException {
+        return DaoManager.createDao(connectionSource, clazz);
+    }
+
+    public void close() {
+        DaoManager.clearCache();
+        connectionSource.closeQuietly();
+    }
+}
@@ -9,6 +9,9 @@
 
 # Add any project specific keep options here:
 
+# Generated mappers are looked up by name
+-keep class **$$ParseMapper { <init>(...); }
+
 # If your project uses WebView with JS, uncomment the following
 # and specify the fully qualified class name to the JavaScript interface
 # class:
@@ -1,7 +1,7 @@
 package com.cardiomood.android.sync.annotations;
 
+import com.cardiomood.android.sync.parse.CachedParseValueConverter;
 import com.cardiomood.android.sync.parse.ParseValueConverter;
-import com.cardiomood.android.sync.parse.SimpleParseValueConverter;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -14,6 +14,6 @@ public @interface ParseClass {
 
     String name() default "";
 
-    Class<? extends ParseValueConverter> valueConverterClass() default SimpleParseValueConverter.class;
+    Class<? extends ParseValueConverter> valueConverterClass() default CachedParseValueConverter.class;
 
 }
@@ -0,0 +1,12 @@
+package com.cardiomood.android.sync.ormlite;
+
+/**
+ * Decides which objects of a {@link SyncDiff} must be saved locally and which remotely.
+ */
+public interface DiffEngine {
+
+    public static final DiffEngine DEFAULT_DIFF_ENGINE = new HashDiffEngine();
+
+    <E extends SyncEntity> void diff(SyncDiff<E> diff) throws Exception;
+
+}
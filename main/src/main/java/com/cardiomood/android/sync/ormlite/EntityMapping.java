@@ -0,0 +1,270 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.annotations.ParseField;
+import com.cardiomood.android.sync.parse.CachedParseValueConverter;
+import com.cardiomood.android.sync.parse.ParseObjectInternals;
+import com.cardiomood.android.sync.parse.ParseTools;
+import com.cardiomood.android.sync.parse.ParseValueConverter;
+import com.cardiomood.android.sync.tools.ReflectionUtils;
+import com.parse.ParseObject;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Mapping metadata of a {@link SyncEntity} subclass: Parse class name, mapped fields and
+ * the value converter. Built once per entity class and shared by both conversion directions.
+ */
+public final class EntityMapping<T extends SyncEntity> {
+
+    private static final ConcurrentMap<Class<?>, EntityMapping<?>> MAPPINGS
+            = new ConcurrentHashMap<Class<?>, EntityMapping<?>>();
+    private static final ConcurrentMap<Class<?>, ParseValueConverter> CONVERTERS
+            = new ConcurrentHashMap<Class<?>, ParseValueConverter>();
+
+    private final Class<T> entityClass;
+    private final String parseClassName;
+    private final ParseValueConverter converter;
+    private final Constructor<T> constructor;
+    private volatile MappedField[] fields;
+    private final ParseMapper<T> mapper;
+
+    private EntityMapping(Class<T> entityClass) throws Exception {
+        ParseClass classAnnotation = entityClass.getAnnotation(ParseClass.class);
+        if (classAnnotation == null) {
+            throw new IllegalArgumentException("Class " + entityClass.getName()
+                    + " must declare annotation " + ParseClass.class.getName());
+        }
+
+        this.entityClass = entityClass;
+        this.parseClassName = (classAnnotation.name() != null && !classAnnotation.name().isEmpty())
+                ? classAnnotation.name() : entityClass.getSimpleName();
+        this.converter = getConverter(classAnnotation.valueConverterClass());
+
+        Constructor<T> ctor = null;
+        if (!Modifier.isAbstract(entityClass.getModifiers())) {
+            try {
+                ctor = entityClass.getDeclaredConstructor();
+                ReflectionUtils.makeAccessible(ctor);
+            } catch (NoSuchMethodException ex) {
+                // instances must be provided by the caller
+            }
+        }
+        this.constructor = ctor;
+
+        this.mapper = findGeneratedMapper(entityClass, converter);
+        // generated code does not need field introspection for the conversion
+        this.fields = (mapper == null) ? findMappedFields(entityClass) : null;
+    }
+
+    private static MappedField[] findMappedFields(Class<?> entityClass) {
+        final List<MappedField> mappedFields = new ArrayList<MappedField>();
+        ReflectionUtils.doWithFields(
+                entityClass,
+                new ReflectionUtils.FieldCallback() {
+                    @Override
+                    public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
+                        ParseField fieldAnnotation = field.getAnnotation(ParseField.class);
+                        if (fieldAnnotation == null || Modifier.isStatic(field.getModifiers()))
+                            return;
+                        String parseFieldName = field.getName();
+                        if (fieldAnnotation.name() != null && !fieldAnnotation.name().isEmpty()) {
+                            parseFieldName = fieldAnnotation.name();
+                        }
+                        field.setAccessible(true);
+                        mappedFields.add(new MappedField(field, parseFieldName));
+                    }
+                }
+        );
+        return mappedFields.toArray(new MappedField[mappedFields.size()]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends SyncEntity> EntityMapping<T> forClass(Class<T> entityClass) {
+        EntityMapping<T> mapping = (EntityMapping<T>) MAPPINGS.get(entityClass);
+        if (mapping == null) {
+            try {
+                mapping = new EntityMapping<T>(entityClass);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RuntimeException("Failed to build mapping of " + entityClass.getName(), ex);
+            }
+            EntityMapping<T> existing = (EntityMapping<T>) MAPPINGS.putIfAbsent(entityClass, mapping);
+            if (existing != null) {
+                mapping = existing;
+            }
+        }
+        return mapping;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends SyncEntity> EntityMapping<T> forEntity(T entity) {
+        return forClass((Class<T>) entity.getClass());
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getParseClassName() {
+        return parseClassName;
+    }
+
+    public ParseValueConverter getConverter() {
+        return converter;
+    }
+
+    public T newEntity() {
+        if (constructor == null) {
+            throw new IllegalStateException("Class " + entityClass.getName()
+                    + " must declare a constructor with no arguments");
+        }
+        try {
+            return constructor.newInstance();
+        } catch (Exception ex) {
+            ReflectionUtils.handleReflectionException(ex);
+            return null;
+        }
+    }
+
+    public boolean hasGeneratedMapper() {
+        return mapper != null;
+    }
+
+    public void fromParseObject(ParseObject parseObject, T entity) {
+        if (mapper != null) {
+            mapper.fromParseObject(parseObject, entity);
+        } else {
+            for (MappedField f : fields) {
+                try {
+                    Object remoteValue = parseObject.get(f.parseName);
+                    f.field.set(entity, converter.convertValue(remoteValue, f.type));
+                } catch (Exception ex) {
+                    throw new RuntimeException("Failed to process field "
+                            + f.field.getName() + " mapped to " + f.parseName, ex);
+                }
+            }
+        }
+
+        entity.setSyncId(parseObject.getObjectId());
+        entity.setSyncDate(parseObject.getUpdatedAt());
+        entity.setCreationDate(parseObject.getCreatedAt());
+    }
+
+    /**
+     * Copies the mapped fields to the object. Values equal to the ones the object already holds
+     * are skipped, so only changed fields are sent when it's saved.
+     */
+    public void toParseObject(T entity, ParseObject parseObject) {
+        ParseObjectInternals.setMetadata(parseObject, entity.getSyncId(),
+                entity.getCreationDate(), entity.getSyncDate());
+
+        if (mapper != null) {
+            mapper.toParseObject(entity, parseObject);
+            return;
+        }
+        for (MappedField f : fields) {
+            Object value;
+            try {
+                value = f.field.get(entity);
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException("Shouldn't be illegal to access field '"
+                        + f.field.getName() + "': " + ex);
+            }
+            ParseTools.putIfChanged(parseObject, f.parseName, value);
+        }
+    }
+
+    /**
+     * Compares the mapped fields of the entity with the values of the object converted to the field types.
+     *
+     * @return {@code true} if saving either side onto the other wouldn't change any mapped field
+     */
+    public boolean sameContent(T entity, ParseObject parseObject) {
+        if (!parseObject.isDataAvailable()) {
+            return false;
+        }
+        for (MappedField f : getFields()) {
+            try {
+                Object value = f.field.get(entity);
+                Object remoteValue = converter.convertValue(parseObject.get(f.parseName), f.type);
+                if (value == null ? remoteValue != null : !value.equals(remoteValue)) {
+                    return false;
+                }
+            } catch (Exception ex) {
+                // not comparable, let the caller save it
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MappedField[] getFields() {
+        MappedField[] result = fields;
+        if (result == null) {
+            result = findMappedFields(entityClass);
+            fields = result;
+        }
+        return result;
+    }
+
+    public ParseObject toParseObject(T entity) {
+        ParseObject parseObject = ParseObject.create(parseClassName);
+        toParseObject(entity, parseObject);
+        return parseObject;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends SyncEntity> ParseMapper<T> findGeneratedMapper(Class<T> entityClass,
+                                                                         ParseValueConverter converter) {
+        Class<?> mapperClass;
+        try {
+            mapperClass = Class.forName(entityClass.getName() + ParseMapper.SUFFIX,
+                    true, entityClass.getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            // no generated mapper: fall back to reflection
+            return null;
+        }
+        try {
+            return (ParseMapper<T>) mapperClass.getConstructor(ParseValueConverter.class).newInstance(converter);
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to instantiate " + mapperClass.getName(), ex);
+        }
+    }
+
+    private static ParseValueConverter getConverter(Class<? extends ParseValueConverter> converterClass)
+            throws Exception {
+        if (CachedParseValueConverter.class.equals(converterClass)) {
+            return ParseValueConverter.DEFAULT_VALUE_CONVERTER;
+        }
+        ParseValueConverter converter = CONVERTERS.get(converterClass);
+        if (converter == null) {
+            converter = converterClass.newInstance();
+            ParseValueConverter existing = CONVERTERS.putIfAbsent(converterClass, converter);
+            if (existing != null) {
+                converter = existing;
+            }
+        }
+        return converter;
+    }
+
+    private static final class MappedField {
+
+        final Field field;
+        final String parseName;
+        final Class<?> type;
+
+        MappedField(Field field, String parseName) {
+            this.field = field;
+            this.parseName = parseName;
+            this.type = field.getType();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.parse.ParseObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the local delta and matches it against the remote delta with hash maps on the Java heap.
+ */
+public class HashDiffEngine implements DiffEngine {
+
+    @Override
+    public <E extends SyncEntity> void diff(SyncDiff<E> diff) throws Exception {
+        final List<ParseObject> remoteObjects = diff.getRemoteObjects();
+        final List<E> localObjects = diff.getLocalObjects();
+
+        // create local object map
+        Map<String, E> localObjectMap = new HashMap<String, E>(localObjects.size());
+        for (E localObject : localObjects) {
+            localObjectMap.put(localObject.getSyncId(), localObject);
+        }
+
+        // resolve remote objects that were not modified locally
+        List<String> unknownSyncIds = new ArrayList<>();
+        for (ParseObject remoteObject : remoteObjects) {
+            if (!localObjectMap.containsKey(remoteObject.getObjectId())) {
+                unknownSyncIds.add(remoteObject.getObjectId());
+            }
+        }
+        Map<String, E> knownObjectMap = diff.getSyncDao().findBySyncIds(unknownSyncIds);
+        unknownSyncIds = null;
+
+        for (ParseObject remoteObject : remoteObjects) {
+            String syncId = remoteObject.getObjectId();
+            E localObject = localObjectMap.get(syncId);
+
+            if (localObject == null) {
+                // the object was created on the server or exists locally but out-of-date
+                diff.pull(knownObjectMap.get(syncId), remoteObject);
+                continue;
+            }
+
+            diff.merge(localObject, remoteObject);
+        }
+        localObjectMap = null;
+        knownObjectMap = null;
+
+        // syncIds of the remote delta
+        Set<String> remoteSyncIds = new HashSet<String>(remoteObjects.size());
+        for (ParseObject remoteObject : remoteObjects) {
+            remoteSyncIds.add(remoteObject.getObjectId());
+        }
+
+        for (E localObject : localObjects) {
+            String syncId = localObject.getSyncId();
+            if (syncId == null) {
+                // a brand new object!
+                diff.push(localObject, null);
+                continue;
+            }
+
+            // pairs of both deltas have been merged already
+            if (!remoteSyncIds.contains(syncId) && !localObject.isDeleted()) {
+                // object was created locally but doesn't exist or too old on the server
+                // this is weird because syncId is not null
+                diff.fetch(localObject);
+            }
+        }
+    }
+}
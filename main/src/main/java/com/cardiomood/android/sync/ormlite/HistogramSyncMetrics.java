@@ -0,0 +1,251 @@
+package com.cardiomood.android.sync.ormlite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregates the measurements per entity class in counters and histograms with power-of-two
+ * buckets. Recording is lock-free and doesn't allocate once the class is known.
+ */
+public class HistogramSyncMetrics implements SyncMetrics {
+
+    private final ConcurrentMap<Class<?>, ClassMetrics> classes = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPhase(Class<? extends SyncEntity> entityClass, Phase phase, long nanos) {
+        get(entityClass).histograms[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onFailure(Class<? extends SyncEntity> entityClass, Exception error) {
+        get(entityClass).remoteFailures.incrementAndGet();
+    }
+
+    @Override
+    public void onResult(SyncResult result) {
+        ClassMetrics metrics = get(result.getEntityClass());
+        metrics.syncs.incrementAndGet();
+        if (result.isSkipped()) {
+            metrics.skippedSyncs.incrementAndGet();
+        } else if (result.getError() != null) {
+            metrics.failedSyncs.incrementAndGet();
+        }
+        metrics.pulled.addAndGet(result.getPulled());
+        metrics.pushed.addAndGet(result.getPushed());
+        metrics.touched.addAndGet(result.getTouched());
+    }
+
+    /**
+     * @return metrics of the entity class, empty if it has not been synchronized yet
+     */
+    public ClassMetrics get(Class<? extends SyncEntity> entityClass) {
+        ClassMetrics metrics = classes.get(entityClass);
+        if (metrics == null) {
+            metrics = new ClassMetrics(entityClass);
+            ClassMetrics existing = classes.putIfAbsent(entityClass, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return metrics of all synchronized classes ordered by class name
+     */
+    public List<ClassMetrics> getAll() {
+        List<ClassMetrics> all = new ArrayList<>(classes.values());
+        Collections.sort(all, new Comparator<ClassMetrics>() {
+            @Override
+            public int compare(ClassMetrics a, ClassMetrics b) {
+                return a.entityClass.getName().compareTo(b.entityClass.getName());
+            }
+        });
+        return all;
+    }
+
+    public void reset() {
+        classes.clear();
+    }
+
+    /**
+     * @return a human-readable report of all classes, one line per class and phase
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (ClassMetrics metrics : getAll()) {
+            sb.append(metrics).append('\n');
+            for (Phase phase : Phase.values()) {
+                Histogram histogram = metrics.getHistogram(phase);
+                if (histogram.getCount() > 0) {
+                    sb.append("  ").append(phase).append(' ').append(histogram).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+    public static class ClassMetrics {
+
+        private final Class<?> entityClass;
+        private final Histogram[] histograms = new Histogram[Phase.values().length];
+        private final AtomicLong syncs = new AtomicLong();
+        private final AtomicLong failedSyncs = new AtomicLong();
+        private final AtomicLong skippedSyncs = new AtomicLong();
+        private final AtomicLong pulled = new AtomicLong();
+        private final AtomicLong pushed = new AtomicLong();
+        private final AtomicLong touched = new AtomicLong();
+        private final AtomicLong remoteFailures = new AtomicLong();
+
+        ClassMetrics(Class<?> entityClass) {
+            this.entityClass = entityClass;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
+
+        public Histogram getHistogram(Phase phase) {
+            return histograms[phase.ordinal()];
+        }
+
+        public long getSyncs() {
+            return syncs.get();
+        }
+
+        public long getFailedSyncs() {
+            return failedSyncs.get();
+        }
+
+        public long getSkippedSyncs() {
+            return skippedSyncs.get();
+        }
+
+        public long getPulled() {
+            return pulled.get();
+        }
+
+        public long getPushed() {
+            return pushed.get();
+        }
+
+        public long getTouched() {
+            return touched.get();
+        }
+
+        /**
+         * @return number of objects rejected by the server
+         */
+        public long getRemoteFailures() {
+            return remoteFailures.get();
+        }
+
+        public long getPages() {
+            return getHistogram(Phase.REMOTE_PAGE).getCount();
+        }
+
+        public long getRequests() {
+            return getHistogram(Phase.REMOTE_PAGE).getCount() + getHistogram(Phase.REMOTE_FETCH).getCount()
+                    + getHistogram(Phase.REMOTE_SAVE).getCount();
+        }
+
+        public long getTransactions() {
+            return getHistogram(Phase.LOCAL_WRITE).getCount();
+        }
+
+        @Override
+        public String toString() {
+            return entityClass.getSimpleName() + ": syncs=" + getSyncs() + " failed=" + getFailedSyncs()
+                    + " skipped=" + getSkippedSyncs() + " pulled=" + getPulled() + " pushed=" + getPushed()
+                    + " touched=" + getTouched() + " rejected=" + getRemoteFailures() + " pages=" + getPages()
+                    + " requests=" + getRequests() + " transactions=" + getTransactions();
+        }
+    }
+
+    /**
+     * Durations in buckets of powers of two microseconds: bucket 0 holds durations under 1 us,
+     * bucket {@code i} durations in [2^(i-1), 2^i) us, the last one everything longer.
+     */
+    public static class Histogram {
+
+        private static final int BUCKETS = 32;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0L, nanos / 1000L);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getMeanNanos() {
+            long count = getCount();
+            return count == 0 ? 0L : getTotalNanos() / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return upper bound of the bucket the percentile falls in, not more than the maximum
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            long count = getCount();
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(getMaxNanos(), (1L << i) * 1000L);
+                }
+            }
+            return getMaxNanos();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "count=%d total=%.1fms mean=%.3fms p50<=%.3fms p99<=%.3fms max=%.3fms",
+                    getCount(), getTotalNanos() / 1e6, getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6,
+                    getPercentileNanos(99) / 1e6, getMaxNanos() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.parse.ParseObject;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Makes the decisions of the diff on a compact index: the remote delta is indexed by objectId in
+ * a {@link SyncIdIndex} with a primitive timestamp and state per object, the local delta is scanned
+ * as raw key columns. Local entities are loaded only for the objects that must be merged, pulled
+ * onto known rows or fetched, so the working set of a large delta stays small and produces
+ * little garbage.
+ */
+public class IndexedDiffEngine implements DiffEngine {
+
+    // states of the remote objects
+    private static final byte UNMATCHED = 0;
+    private static final byte MERGE = 1;
+    private static final byte DONE = 2;
+
+    @Override
+    public <E extends SyncEntity> void diff(SyncDiff<E> diff) throws Exception {
+        List<ParseObject> remoteObjects = diff.getRemoteObjects();
+        int size = remoteObjects.size();
+        SyncIdIndex index = new SyncIdIndex(size);
+        long[] remoteTimes = new long[size];
+        byte[] states = new byte[size];
+        for (int i = 0; i < size; i++) {
+            ParseObject remoteObject = remoteObjects.get(i);
+            index.put(remoteObject.getObjectId(), i);
+            remoteTimes[i] = time(remoteObject.getUpdatedAt());
+        }
+
+        // local objects modified since the last synchronization, but missing in the remote delta
+        List<String> missingSyncIds = new ArrayList<>();
+        if (diff.hasLocalObjects()) {
+            for (E localObject : diff.getLocalObjects()) {
+                if (localObject.getSyncId() == null) {
+                    // a brand new object!
+                    diff.push(localObject, null);
+                } else {
+                    scan(localObject.getSyncId(), time(localObject.getSyncDate()), localObject.isDeleted(),
+                            index, remoteTimes, states, missingSyncIds);
+                }
+            }
+        } else {
+            String idColumn = diff.getSyncDao().getTableInfo().getIdField().getColumnName();
+            List<String> newIds = new ArrayList<>();
+            QueryBuilder<E, ?> keys = diff.localDeltaQuery();
+            keys.selectRaw(idColumn, SyncHelper.DB_OBJECT_ID_FIELD, SyncHelper.DB_UPDATED_AT_FIELD,
+                    SyncHelper.DB_DELETED_FIELD);
+            GenericRawResults<String[]> rows = keys.queryRaw();
+            try {
+                for (String[] row : rows) {
+                    if (row[1] == null) {
+                        newIds.add(row[0]);
+                    } else {
+                        scan(row[1], row[2] == null ? 0L : Long.parseLong(row[2]), isTrue(row[3]),
+                                index, remoteTimes, states, missingSyncIds);
+                    }
+                }
+            } finally {
+                rows.close();
+            }
+            for (int from = 0; from < newIds.size(); from += SyncHelper.MAX_QUERY_PARAMETERS) {
+                for (E localObject : findChunk(diff.getSyncDao(), idColumn, newIds, from)) {
+                    // a brand new object!
+                    diff.push(localObject, null);
+                }
+            }
+        }
+
+        // local objects to merge, to pull onto or to fetch
+        List<String> syncIds = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (states[i] != DONE) {
+                syncIds.add(remoteObjects.get(i).getObjectId());
+            }
+        }
+        syncIds.addAll(missingSyncIds);
+        missingSyncIds = null;
+        for (int from = 0; from < syncIds.size(); from += SyncHelper.MAX_QUERY_PARAMETERS) {
+            for (E localObject : findChunk(diff.getSyncDao(), SyncHelper.DB_OBJECT_ID_FIELD, syncIds, from)) {
+                int i = index.get(localObject.getSyncId());
+                if (i < 0) {
+                    diff.fetch(localObject);
+                } else if (states[i] == MERGE) {
+                    diff.merge(localObject, remoteObjects.get(i));
+                    states[i] = DONE;
+                } else if (states[i] == UNMATCHED) {
+                    // exists locally but out-of-date
+                    diff.pull(localObject, remoteObjects.get(i));
+                    states[i] = DONE;
+                }
+            }
+        }
+
+        // created on the server
+        for (int i = 0; i < size; i++) {
+            if (states[i] == UNMATCHED) {
+                diff.pull(null, remoteObjects.get(i));
+            }
+        }
+    }
+
+    private static void scan(String syncId, long localTime, boolean deleted, SyncIdIndex index,
+                             long[] remoteTimes, byte[] states, List<String> missingSyncIds) {
+        int i = index.get(syncId);
+        if (i < 0) {
+            if (!deleted) {
+                missingSyncIds.add(syncId);
+            }
+        } else {
+            // modified on both sides, nothing to do if the versions have the same date
+            states[i] = remoteTimes[i] != localTime ? MERGE : DONE;
+        }
+    }
+
+    /**
+     * @return local objects whose column has one of the values of the chunk starting at {@code from}
+     */
+    private static <E extends SyncEntity> List<E> findChunk(SyncDAO<E, ?> dao, String column, List<String> values,
+                                                            int from) throws SQLException {
+        int to = Math.min(values.size(), from + SyncHelper.MAX_QUERY_PARAMETERS);
+        List<SelectArg> args = new ArrayList<>(to - from);
+        for (String value : values.subList(from, to)) {
+            args.add(new SelectArg(value));
+        }
+        return dao.queryBuilder().where().in(column, args).query();
+    }
+
+    private static long time(Date date) {
+        return date == null ? 0L : date.getTime();
+    }
+
+    private static boolean isTrue(String value) {
+        return "1".equals(value) || "true".equalsIgnoreCase(value);
+    }
+}
@@ -0,0 +1,90 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.parse.ParseObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorts both deltas by syncId and matches them in a single merge pass, so every pair of a local and
+ * a remote object is resolved exactly once and no hash maps are built. The local delta is queried
+ * in syncId order, the remote delta is sorted on the heap. Remote objects missing in the local delta
+ * are matched against the known local objects by a second merge pass.
+ */
+public class MergeDiffEngine implements DiffEngine {
+
+    private static final Comparator<ParseObject> REMOTE_ORDER = new Comparator<ParseObject>() {
+        @Override
+        public int compare(ParseObject a, ParseObject b) {
+            return a.getObjectId().compareTo(b.getObjectId());
+        }
+    };
+
+    @Override
+    public <E extends SyncEntity> void diff(SyncDiff<E> diff) throws Exception {
+        List<ParseObject> remoteObjects = new ArrayList<>(diff.getRemoteObjects());
+        Collections.sort(remoteObjects, REMOTE_ORDER);
+
+        List<E> localObjects;
+        if (diff.hasLocalObjects()) {
+            localObjects = new ArrayList<>(diff.getLocalObjects());
+        } else {
+            localObjects = diff.localDeltaQuery().orderBy(SyncHelper.DB_OBJECT_ID_FIELD, true).query();
+        }
+        // the database may collate differently, sorting a sorted list takes a single pass
+        Collections.sort(localObjects, SyncHelper.<E>syncIdOrder());
+
+        List<ParseObject> remoteOnly = new ArrayList<>();
+        int l = 0;
+        int r = 0;
+        while (l < localObjects.size() || r < remoteObjects.size()) {
+            E localObject = l < localObjects.size() ? localObjects.get(l) : null;
+            ParseObject remoteObject = r < remoteObjects.size() ? remoteObjects.get(r) : null;
+            int cmp;
+            if (localObject == null) {
+                cmp = 1;
+            } else if (remoteObject == null || localObject.getSyncId() == null) {
+                cmp = -1;
+            } else {
+                cmp = localObject.getSyncId().compareTo(remoteObject.getObjectId());
+            }
+
+            if (cmp < 0) {
+                if (localObject.getSyncId() == null) {
+                    // a brand new object!
+                    diff.push(localObject, null);
+                } else if (!localObject.isDeleted()) {
+                    // modified locally, but not in the remote delta
+                    diff.fetch(localObject);
+                }
+                l++;
+            } else if (cmp > 0) {
+                remoteOnly.add(remoteObject);
+                r++;
+            } else {
+                diff.merge(localObject, remoteObject);
+                l++;
+                r++;
+            }
+        }
+        localObjects = null;
+        remoteObjects = null;
+
+        // remote objects that were not modified locally: created on the server or out-of-date locally
+        List<String> syncIds = new ArrayList<>(remoteOnly.size());
+        for (ParseObject remoteObject : remoteOnly) {
+            syncIds.add(remoteObject.getObjectId());
+        }
+        List<E> knownObjects = SyncHelper.findBySyncIdsOrdered(diff.getSyncDao(), syncIds);
+        int k = 0;
+        for (ParseObject remoteObject : remoteOnly) {
+            E knownObject = null;
+            if (k < knownObjects.size() && knownObjects.get(k).getSyncId().equals(remoteObject.getObjectId())) {
+                knownObject = knownObjects.get(k++);
+            }
+            diff.pull(knownObject, remoteObject);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.parse.ParseObject;
+
+/**
+ * Copies the {@link com.cardiomood.android.sync.annotations.ParseField} values of an entity
+ * to and from a {@link ParseObject}.
+ *
+ * <p>Implementations named {@code <EntityClass>$$ParseMapper} are generated by the DataSync
+ * annotation processor and must declare a public constructor taking a
+ * {@link com.cardiomood.android.sync.parse.ParseValueConverter}.
+ * Entities without a generated mapper are converted with reflection.
+ */
+public interface ParseMapper<E extends SyncEntity> {
+
+    String SUFFIX = "$$ParseMapper";
+
+    void fromParseObject(ParseObject parseObject, E entity);
+
+    void toParseObject(E entity, ParseObject parseObject);
+
+}
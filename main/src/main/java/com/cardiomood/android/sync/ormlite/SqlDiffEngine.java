@@ -0,0 +1,174 @@
+package com.cardiomood.android.sync.ormlite;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.misc.TransactionManager;
+import com.parse.ParseObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Stages the keys of the remote delta in a temporary table and computes the objects to pull,
+ * to push and to fetch with joins against the entity table. The working set of the diff stays
+ * in SQLite, which can use the sync_id index, and only objects that must be saved are loaded.
+ */
+public class SqlDiffEngine implements DiffEngine {
+
+    private static final String REMOTE_TABLE = "temp.sync_diff_remote";
+
+    private static final String SYNC_ID = quote(SyncHelper.DB_OBJECT_ID_FIELD);
+    private static final String SYNC_DATE = quote(SyncHelper.DB_UPDATED_AT_FIELD);
+    private static final String DELETED = quote(SyncHelper.DB_DELETED_FIELD);
+
+    @Override
+    public <E extends SyncEntity> void diff(final SyncDiff<E> diff) throws Exception {
+        TransactionManager.callInTransaction(diff.getDbHelper().getConnectionSource(), new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                // temporary tables live in the connection that is bound to the transaction
+                SQLiteDatabase db = diff.getDbHelper().getWritableDatabase();
+                db.execSQL("CREATE TEMP TABLE IF NOT EXISTS sync_diff_remote "
+                        + "(object_id TEXT PRIMARY KEY, updated_at INTEGER, position INTEGER)");
+                try {
+                    db.execSQL("DELETE FROM " + REMOTE_TABLE);
+                    stageRemoteObjects(db, diff.getRemoteObjects());
+                    findObjectsToPull(db, diff);
+                    findObjectsToPush(db, diff);
+                } finally {
+                    db.execSQL("DROP TABLE IF EXISTS " + REMOTE_TABLE);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void stageRemoteObjects(SQLiteDatabase db, List<ParseObject> remoteObjects) {
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + REMOTE_TABLE
+                + " (object_id, updated_at, position) VALUES (?, ?, ?)");
+        try {
+            for (int i = 0; i < remoteObjects.size(); i++) {
+                ParseObject remoteObject = remoteObjects.get(i);
+                insert.bindString(1, remoteObject.getObjectId());
+                insert.bindLong(2, remoteObject.getUpdatedAt() == null ? 0L : remoteObject.getUpdatedAt().getTime());
+                insert.bindLong(3, i);
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    /**
+     * Remote objects that don't exist locally, weren't modified locally or are newer than the local version.
+     */
+    private <E extends SyncEntity> void findObjectsToPull(SQLiteDatabase db, SyncDiff<E> diff) throws Exception {
+        String idColumn = quote(idField(diff).getColumnName());
+        List<String> args = new ArrayList<>(2);
+        String sql = "SELECT r.position, l." + idColumn
+                + " FROM " + REMOTE_TABLE + " r LEFT JOIN " + table(diff) + " l ON l." + SYNC_ID + " = r.object_id"
+                + " WHERE l." + SYNC_ID + " IS NULL OR NOT IFNULL(" + localDeltaCondition(diff, args) + ", 0)"
+                + " OR IFNULL(l." + SYNC_DATE + ", 0) < r.updated_at";
+
+        List<Integer> positions = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+        Cursor cursor = db.rawQuery(sql, args.toArray(new String[args.size()]));
+        try {
+            FieldType idField = idField(diff);
+            while (cursor.moveToNext()) {
+                positions.add(cursor.getInt(0));
+                ids.add(cursor.isNull(1) ? null : idField.convertStringToJavaField(cursor.getString(1), 1));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<Object, E> localObjects = SyncHelper.findByIds(diff.getSyncDao(), ids);
+        for (int i = 0; i < positions.size(); i++) {
+            Object id = ids.get(i);
+            diff.pull(id == null ? null : localObjects.get(id), diff.getRemoteObjects().get(positions.get(i)));
+        }
+    }
+
+    /**
+     * Local changes that are new, newer than the remote version or whose remote version is unknown.
+     */
+    private <E extends SyncEntity> void findObjectsToPush(SQLiteDatabase db, SyncDiff<E> diff) throws Exception {
+        String idColumn = quote(idField(diff).getColumnName());
+        List<String> args = new ArrayList<>(2);
+        String sql = "SELECT l." + idColumn + ", r.position"
+                + " FROM " + table(diff) + " l LEFT JOIN " + REMOTE_TABLE + " r ON r.object_id = l." + SYNC_ID
+                + " WHERE " + localDeltaCondition(diff, args)
+                + " AND (l." + SYNC_ID + " IS NULL"
+                + " OR (r.object_id IS NOT NULL AND r.updated_at < IFNULL(l." + SYNC_DATE + ", 0))"
+                + " OR (r.object_id IS NULL AND l." + DELETED + " = 0))";
+
+        List<Object> ids = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Cursor cursor = db.rawQuery(sql, args.toArray(new String[args.size()]));
+        try {
+            FieldType idField = idField(diff);
+            while (cursor.moveToNext()) {
+                ids.add(idField.convertStringToJavaField(cursor.getString(0), 0));
+                positions.add(cursor.isNull(1) ? null : cursor.getInt(1));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<Object, E> localObjects = SyncHelper.findByIds(diff.getSyncDao(), ids);
+        for (int i = 0; i < ids.size(); i++) {
+            E localObject = localObjects.get(ids.get(i));
+            Integer position = positions.get(i);
+            if (localObject.getSyncId() == null) {
+                // a brand new object!
+                diff.push(localObject, null);
+            } else if (position != null) {
+                diff.push(localObject, diff.getRemoteObjects().get(position));
+            } else {
+                diff.fetch(localObject);
+            }
+        }
+    }
+
+    /**
+     * Same condition as {@link SyncDiff#localDeltaQuery()}, applied to the entity table aliased as l.
+     * Like in SQL it's {@code NULL} for rows with a {@code NULL} sync_timestamp or user id.
+     */
+    private String localDeltaCondition(SyncDiff<?> diff, List<String> args) {
+        String condition;
+        if (diff.getOutboxSeq() != null) {
+            condition = "l." + quote(idField(diff).getColumnName()) + " IN (SELECT " + SyncOutboxEntry.ENTITY_ID_FIELD
+                    + " FROM " + SyncOutboxEntry.TABLE_NAME + " WHERE " + SyncOutboxEntry.TABLE_NAME_FIELD
+                    + " = ? AND " + SyncOutboxEntry.SEQ_FIELD + " <= CAST(? AS INTEGER))";
+            args.add(diff.getSyncDao().getTableInfo().getTableName());
+            args.add(String.valueOf(diff.getOutboxSeq()));
+        } else {
+            // parameters are bound as text, the cast lets the comparison use the index of sync_timestamp
+            condition = "l." + SYNC_DATE + " > CAST(? AS INTEGER)";
+            args.add(String.valueOf(diff.getLastSyncDate().getTime()));
+        }
+        if (diff.getUserId() == null) {
+            return "(" + condition + ")";
+        }
+        args.add(diff.getUserId());
+        return "(" + condition + " AND l." + quote(diff.getUserIdColumn()) + " = ?)";
+    }
+
+    private String table(SyncDiff<?> diff) {
+        return quote(diff.getSyncDao().getTableInfo().getTableName());
+    }
+
+    private FieldType idField(SyncDiff<?> diff) {
+        return diff.getSyncDao().getTableInfo().getIdField();
+    }
+
+    private static String quote(String name) {
+        return "\"" + name + "\"";
+    }
+}
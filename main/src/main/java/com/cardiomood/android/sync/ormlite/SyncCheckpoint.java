@@ -0,0 +1,132 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import java.util.Date;
+
+/**
+ * Progress of the synchronization of one Parse class for one user, stored by the library.
+ * The remote watermark is the latest server {@code updatedAt} observed in a remote delta, the local watermark
+ * is the device time when the last successful synchronization started. The resume key is the last
+ * remote object applied by a synchronization that didn't finish, the next one continues after it.
+ */
+@DatabaseTable(tableName = SyncCheckpoint.TABLE_NAME)
+public class SyncCheckpoint {
+
+    public static final String TABLE_NAME = "sync_checkpoint";
+
+    static final String PARSE_CLASS_FIELD = "parse_class";
+    static final String USER_ID_FIELD = "user_id";
+    static final String RESUME_UPDATED_AT_FIELD = "resume_updated_at";
+    static final String RESUME_OBJECT_ID_FIELD = "resume_object_id";
+
+    // used instead of null so that the (parse_class, user_id) pair stays unique
+    static final String ALL_USERS = "";
+
+    @DatabaseField(generatedId = true)
+    private Long id;
+
+    @DatabaseField(columnName = PARSE_CLASS_FIELD, canBeNull = false, uniqueCombo = true)
+    private String parseClass;
+
+    @DatabaseField(columnName = USER_ID_FIELD, canBeNull = false, uniqueCombo = true)
+    private String userId;
+
+    @DatabaseField(columnName = "remote_watermark", dataType = DataType.DATE_LONG)
+    private Date remoteWatermark;
+
+    @DatabaseField(columnName = "local_watermark", dataType = DataType.DATE_LONG)
+    private Date localWatermark;
+
+    @DatabaseField(columnName = RESUME_UPDATED_AT_FIELD, dataType = DataType.DATE_LONG)
+    private Date resumeUpdatedAt;
+
+    @DatabaseField(columnName = RESUME_OBJECT_ID_FIELD)
+    private String resumeObjectId;
+
+    // not stored until the synchronization succeeds
+    private Date observedWatermark;
+
+    SyncCheckpoint() {
+        // for OrmLite
+    }
+
+    SyncCheckpoint(String parseClass, String userId, Date initialWatermark) {
+        this.parseClass = parseClass;
+        this.userId = userId == null ? ALL_USERS : userId;
+        this.remoteWatermark = initialWatermark;
+        this.localWatermark = initialWatermark;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getParseClass() {
+        return parseClass;
+    }
+
+    /**
+     * @return the user id or an empty string if the checkpoint covers objects of all users
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    public Date getRemoteWatermark() {
+        return remoteWatermark;
+    }
+
+    void setRemoteWatermark(Date remoteWatermark) {
+        this.remoteWatermark = remoteWatermark;
+    }
+
+    public Date getLocalWatermark() {
+        return localWatermark;
+    }
+
+    void setLocalWatermark(Date localWatermark) {
+        this.localWatermark = localWatermark;
+    }
+
+    public Date getResumeUpdatedAt() {
+        return resumeUpdatedAt;
+    }
+
+    public String getResumeObjectId() {
+        return resumeObjectId;
+    }
+
+    void setResumeKey(Date resumeUpdatedAt, String resumeObjectId) {
+        this.resumeUpdatedAt = resumeUpdatedAt;
+        this.resumeObjectId = resumeObjectId;
+    }
+
+    /**
+     * Remembers {@code updatedAt} if it's later than everything observed so far. The remote
+     * watermark moves to the latest observed date on {@link #advance()}.
+     */
+    void observe(Date updatedAt) {
+        if (updatedAt == null) {
+            return;
+        }
+        Date latest = observedWatermark != null ? observedWatermark : remoteWatermark;
+        if (latest == null || updatedAt.after(latest)) {
+            observedWatermark = updatedAt;
+        }
+    }
+
+    /**
+     * Completes the synchronization: moves the remote watermark to the latest observed date
+     * and clears the resume key.
+     */
+    void advance() {
+        if (observedWatermark != null) {
+            remoteWatermark = observedWatermark;
+            observedWatermark = null;
+        }
+        setResumeKey(null, null);
+    }
+}
@@ -1,18 +1,273 @@
 package com.cardiomood.android.sync.ormlite;
 
 import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.stmt.PreparedDelete;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class SyncDAO<T extends SyncEntity, ID> extends BaseDaoImpl<T, ID> {
 
+    // writes made by the synchronization itself must not be pushed back
+    private static final ThreadLocal<Boolean> SYNC_WRITE = new ThreadLocal<>();
+
+    private volatile boolean outboxEnabled = false;
+    private Dao<SyncOutboxEntry, Long> outboxDao = null;
+    private volatile int syncIdCacheSize = 0;
+    private volatile Map<String, ID> syncIdCache = null;
+
     protected SyncDAO(ConnectionSource connectionSource, Class<T> dataClass) throws SQLException {
         super(connectionSource, dataClass);
     }
 
     public T findBySyncId(String syncId) throws SQLException {
-        return SyncHelper.findBySyncId(this, syncId);
+        ID id = cachedId(syncId);
+        if (id != null) {
+            T data = queryForId(id);
+            if (data != null && syncId.equals(data.getSyncId())) {
+                return data;
+            }
+            uncache(syncId);
+        }
+        T data = SyncHelper.findBySyncId(this, syncId);
+        if (data != null) {
+            cache(data);
+        }
+        return data;
+    }
+
+    public Map<String, T> findBySyncIds(Collection<String> syncIds) throws SQLException {
+        if (syncIdCache == null) {
+            return SyncHelper.findBySyncIds(this, syncIds);
+        }
+        List<Object> cachedIds = new ArrayList<>();
+        List<String> uncachedSyncIds = new ArrayList<>();
+        for (String syncId : syncIds) {
+            ID id = cachedId(syncId);
+            if (id != null) {
+                cachedIds.add(id);
+            } else {
+                uncachedSyncIds.add(syncId);
+            }
+        }
+
+        Map<String, T> result = SyncHelper.findBySyncIds(this, uncachedSyncIds);
+        for (T data : result.values()) {
+            cache(data);
+        }
+        if (!cachedIds.isEmpty()) {
+            for (T data : SyncHelper.findByIds(this, cachedIds).values()) {
+                if (data.getSyncId() != null) {
+                    result.put(data.getSyncId(), data);
+                }
+            }
+            // entries of deleted rows or changed syncIds
+            List<String> staleSyncIds = new ArrayList<>();
+            for (String syncId : syncIds) {
+                if (!result.containsKey(syncId) && cachedId(syncId) != null) {
+                    uncache(syncId);
+                    staleSyncIds.add(syncId);
+                }
+            }
+            for (T data : SyncHelper.findBySyncIds(this, staleSyncIds).values()) {
+                result.put(data.getSyncId(), data);
+                cache(data);
+            }
+        }
+        return result;
+    }
+
+    public int getSyncIdCacheSize() {
+        return syncIdCacheSize;
+    }
+
+    /**
+     * Enables a cache of the ids of up to {@code maxSize} rows by their syncIds, used by
+     * {@link #findBySyncId(String)} and {@link #findBySyncIds(Collection)}. Rows are cached when
+     * they are written through this DAO or found by syncId and evicted in least-recently-used order.
+     * Entries of rows deleted or changed with raw statements are detected and dropped when used.
+     *
+     * @param maxSize maximum number of cached rows, 0 disables the cache
+     */
+    public void setSyncIdCacheSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        syncIdCacheSize = maxSize;
+        syncIdCache = maxSize == 0 ? null : new LinkedHashMap<String, ID>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ID> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
+    }
+
+    /**
+     * Enables recording of the objects created or updated through this DAO in the
+     * {@link SyncOutboxEntry#TABLE_NAME} table. Changes made with raw statements or
+     * {@code PreparedUpdate} are not recorded.
+     */
+    public void setOutboxEnabled(boolean outboxEnabled) {
+        this.outboxEnabled = outboxEnabled;
+    }
+
+    @Override
+    public int create(T data) throws SQLException {
+        int rows = super.create(data);
+        if (rows > 0) {
+            recordChange(data);
+            cache(data);
+        }
+        return rows;
+    }
+
+    @Override
+    public int update(T data) throws SQLException {
+        int rows = super.update(data);
+        if (rows > 0) {
+            recordChange(data);
+            cache(data);
+        }
+        return rows;
+    }
+
+    @Override
+    public int updateId(T data, ID newId) throws SQLException {
+        uncache(data.getSyncId());
+        return super.updateId(data, newId);
+    }
+
+    @Override
+    public int delete(T data) throws SQLException {
+        uncache(data.getSyncId());
+        return super.delete(data);
+    }
+
+    @Override
+    public int delete(Collection<T> datas) throws SQLException {
+        for (T data : datas) {
+            uncache(data.getSyncId());
+        }
+        return super.delete(datas);
+    }
+
+    @Override
+    public int deleteById(ID id) throws SQLException {
+        uncacheIds(Collections.singleton(id));
+        return super.deleteById(id);
+    }
+
+    @Override
+    public int deleteIds(Collection<ID> ids) throws SQLException {
+        uncacheIds(ids);
+        return super.deleteIds(ids);
+    }
+
+    @Override
+    public int delete(PreparedDelete<T> preparedDelete) throws SQLException {
+        // the deleted rows are unknown
+        Map<String, ID> cache = syncIdCache;
+        if (cache != null) {
+            synchronized (cache) {
+                cache.clear();
+            }
+        }
+        return super.delete(preparedDelete);
+    }
+
+    private ID cachedId(String syncId) {
+        Map<String, ID> cache = syncIdCache;
+        if (cache == null || syncId == null) {
+            return null;
+        }
+        synchronized (cache) {
+            return cache.get(syncId);
+        }
+    }
+
+    private void cache(T data) throws SQLException {
+        Map<String, ID> cache = syncIdCache;
+        if (cache == null || data.getSyncId() == null) {
+            return;
+        }
+        ID id = extractId(data);
+        if (id != null) {
+            synchronized (cache) {
+                cache.put(data.getSyncId(), id);
+            }
+        }
+    }
+
+    private void uncache(String syncId) {
+        Map<String, ID> cache = syncIdCache;
+        if (cache == null || syncId == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.remove(syncId);
+        }
+    }
+
+    private void uncacheIds(Collection<ID> ids) {
+        Map<String, ID> cache = syncIdCache;
+        if (cache == null) {
+            return;
+        }
+        // every cached id is looked up
+        Set<ID> idSet = new HashSet<>(ids);
+        synchronized (cache) {
+            Iterator<ID> it = cache.values().iterator();
+            while (it.hasNext()) {
+                if (idSet.contains(it.next())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void recordChange(T data) throws SQLException {
+        if (!outboxEnabled || Boolean.TRUE.equals(SYNC_WRITE.get())) {
+            return;
+        }
+        getOutboxDao().executeRaw("INSERT OR REPLACE INTO " + SyncOutboxEntry.TABLE_NAME
+                        + " (" + SyncOutboxEntry.TABLE_NAME_FIELD + ", " + SyncOutboxEntry.ENTITY_ID_FIELD
+                        + ") VALUES (?, ?)",
+                getTableInfo().getTableName(), String.valueOf(extractId(data)));
+    }
+
+    synchronized Dao<SyncOutboxEntry, Long> getOutboxDao() throws SQLException {
+        if (outboxDao == null) {
+            TableUtils.createTableIfNotExists(getConnectionSource(), SyncOutboxEntry.class);
+            outboxDao = DaoManager.createDao(getConnectionSource(), SyncOutboxEntry.class);
+        }
+        return outboxDao;
+    }
+
+    /**
+     * Marks the writes of the current thread as made by the synchronization.
+     */
+    static void setSyncWrite(boolean syncWrite) {
+        if (syncWrite) {
+            SYNC_WRITE.set(Boolean.TRUE);
+        } else {
+            SYNC_WRITE.remove();
+        }
     }
 
 }
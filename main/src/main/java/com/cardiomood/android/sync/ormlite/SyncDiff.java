@@ -0,0 +1,216 @@
+package com.cardiomood.android.sync.ormlite;
+
+import android.util.Pair;
+
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.parse.ParseObject;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Input and output of a {@link DiffEngine}: the remote delta of one entity class, the parameters
+ * of the local delta and the objects to be saved on each side.
+ */
+public class SyncDiff<E extends SyncEntity> {
+
+    private final EntityMapping<E> mapping;
+    private final SyncDAO<E, ?> syncDao;
+    private final OrmLiteSqliteOpenHelper dbHelper;
+    private final SyncCheckpoint checkpoint;
+    private final String userIdColumn;
+    private final String userId;
+    private List<ParseObject> remoteObjects = null;
+    private List<E> localObjects = null;
+    private Long outboxSeq = null;
+
+    private final List<Pair<E, ParseObject>> toSaveLocally = new ArrayList<>();
+    private final List<Pair<E, ParseObject>> toSaveRemotely = new ArrayList<>();
+    private final List<Pair<E, ParseObject>> toTouchLocally = new ArrayList<>();
+    private final List<E> missingObjects = new ArrayList<>();
+
+    SyncDiff(EntityMapping<E> mapping, SyncDAO<E, ?> syncDao, OrmLiteSqliteOpenHelper dbHelper,
+             SyncCheckpoint checkpoint, String userIdColumn, String userId) {
+        this.mapping = mapping;
+        this.syncDao = syncDao;
+        this.dbHelper = dbHelper;
+        this.checkpoint = checkpoint;
+        this.userIdColumn = userIdColumn;
+        this.userId = userId;
+    }
+
+    /**
+     * @return a diff with the same parameters and no results, used to apply a delta in parts
+     */
+    SyncDiff<E> copy() {
+        SyncDiff<E> copy = new SyncDiff<>(mapping, syncDao, dbHelper, checkpoint, userIdColumn, userId);
+        copy.outboxSeq = outboxSeq;
+        return copy;
+    }
+
+    public EntityMapping<E> getMapping() {
+        return mapping;
+    }
+
+    public SyncDAO<E, ?> getSyncDao() {
+        return syncDao;
+    }
+
+    public OrmLiteSqliteOpenHelper getDbHelper() {
+        return dbHelper;
+    }
+
+    public List<ParseObject> getRemoteObjects() {
+        return remoteObjects;
+    }
+
+    void setRemoteObjects(List<ParseObject> remoteObjects) {
+        this.remoteObjects = remoteObjects;
+    }
+
+    SyncCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * @return the date local objects must be modified after to be in the local delta
+     */
+    public Date getLastSyncDate() {
+        return checkpoint.getLocalWatermark();
+    }
+
+    public String getUserIdColumn() {
+        return userIdColumn;
+    }
+
+    /**
+     * @return id of the user whose objects are synchronized, {@code null} to synchronize all objects
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the last outbox entry of the local delta, {@code null} if the outbox is not used
+     */
+    public Long getOutboxSeq() {
+        return outboxSeq;
+    }
+
+    void setOutboxSeq(Long outboxSeq) {
+        this.outboxSeq = outboxSeq;
+    }
+
+    /**
+     * @return query of the local objects modified since the last synchronization
+     */
+    public QueryBuilder<E, ?> localDeltaQuery() throws SQLException {
+        if (outboxSeq != null) {
+            return SyncHelper.outboxDeltaQuery(syncDao, outboxSeq, userIdColumn, userId);
+        }
+        return SyncHelper.localDeltaQuery(syncDao, getLastSyncDate(), userIdColumn, userId);
+    }
+
+    /**
+     * @return the local delta, queried on the first call unless it was loaded in advance
+     */
+    public List<E> getLocalObjects() throws SQLException {
+        if (localObjects == null) {
+            localObjects = localDeltaQuery().query();
+        }
+        return localObjects;
+    }
+
+    /**
+     * @return {@code true} if the local delta has been loaded
+     */
+    boolean hasLocalObjects() {
+        return localObjects != null;
+    }
+
+    void setLocalObjects(List<E> localObjects) {
+        this.localObjects = localObjects;
+    }
+
+    public List<Pair<E, ParseObject>> getToSaveLocally() {
+        return toSaveLocally;
+    }
+
+    public List<Pair<E, ParseObject>> getToSaveRemotely() {
+        return toSaveRemotely;
+    }
+
+    /**
+     * @return objects whose content is the same on both sides, only their syncDate is updated
+     */
+    public List<Pair<E, ParseObject>> getToTouchLocally() {
+        return toTouchLocally;
+    }
+
+    /**
+     * @return local objects with a syncId whose remote versions are not in the remote delta
+     */
+    public List<E> getMissingObjects() {
+        return missingObjects;
+    }
+
+    /**
+     * Updates the local object from the remote one. A new local object is created if it's {@code null}.
+     */
+    public void pull(E localObject, ParseObject remoteObject) {
+        if (localObject != null && mapping.sameContent(localObject, remoteObject)) {
+            // only the timestamp has changed
+            toTouchLocally.add(new Pair<>(localObject, remoteObject));
+            return;
+        }
+        if (localObject == null) {
+            localObject = mapping.newEntity();
+        }
+        mapping.fromParseObject(remoteObject, localObject);
+        toSaveLocally.add(new Pair<>(localObject, remoteObject));
+    }
+
+    /**
+     * Updates the remote object from the local one. A new remote object is created if it's {@code null}.
+     */
+    public void push(E localObject, ParseObject remoteObject) {
+        if (remoteObject == null) {
+            remoteObject = mapping.toParseObject(localObject);
+        } else if (mapping.sameContent(localObject, remoteObject)) {
+            // the server already has this content
+            toTouchLocally.add(new Pair<>(localObject, remoteObject));
+            return;
+        } else {
+            mapping.toParseObject(localObject, remoteObject);
+        }
+        toSaveRemotely.add(new Pair<>(localObject, remoteObject));
+    }
+
+    /**
+     * Resolves an object modified both locally and remotely, the newer version wins.
+     */
+    public void merge(E localObject, ParseObject remoteObject) {
+        long localTime = (localObject.getSyncDate() == null)
+                ? 0L : localObject.getSyncDate().getTime();
+        long remoteTime = (remoteObject.getUpdatedAt() == null)
+                ? 0L : remoteObject.getUpdatedAt().getTime();
+
+        if (remoteTime > localTime) {
+            // the remote object is newer
+            pull(localObject, remoteObject);
+        } else if (remoteTime < localTime) {
+            // the local objects is newer
+            push(localObject, remoteObject);
+        }
+    }
+
+    /**
+     * Marks a local object whose remote version must be fetched before it's pushed.
+     */
+    public void fetch(E localObject) {
+        missingObjects.add(localObject);
+    }
+}
@@ -4,22 +4,48 @@ import android.util.Pair;
 
 import com.cardiomood.android.sync.SyncException;
 import com.cardiomood.android.sync.annotations.ParseClass;
+import com.cardiomood.android.sync.parse.DeltaPager;
+import com.cardiomood.android.sync.parse.ParsePageStream;
 import com.cardiomood.android.sync.parse.ParseTools;
+import com.cardiomood.android.sync.transport.DeltaQuery;
+import com.cardiomood.android.sync.transport.ParseTransport;
+import com.cardiomood.android.sync.transport.RetryPolicy;
+import com.cardiomood.android.sync.transport.RetryingTransport;
+import com.cardiomood.android.sync.transport.SyncTransport;
 import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.SqlType;
 import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.stmt.PreparedUpdate;
 import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.table.TableUtils;
+import com.parse.ParseException;
 import com.parse.ParseObject;
-import com.parse.ParseQuery;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import bolts.Continuation;
+import bolts.Task;
 
 public class SyncHelper {
 
@@ -29,16 +55,57 @@ public class SyncHelper {
     private static final String PARSE_DELETED_FIELD = "deleted";
 
     private static final String DB_USER_ID_FIELD = "sync_user_id";
-    private static final String DB_UPDATED_AT_FIELD = "sync_timestamp";
-    private static final String DB_OBJECT_ID_FIELD = "sync_id";
-    private static final String DB_DELETED_FIELD = "is_deleted";
+    static final String DB_UPDATED_AT_FIELD = "sync_timestamp";
+    static final String DB_OBJECT_ID_FIELD = "sync_id";
+    static final String DB_DELETED_FIELD = "deleted";
+
+    // SQLite doesn't accept more than 999 host parameters per statement
+    static final int MAX_QUERY_PARAMETERS = 500;
+
+    private static final Comparator<SyncEntity> SYNC_ID_ORDER = new Comparator<SyncEntity>() {
+        @Override
+        public int compare(SyncEntity a, SyncEntity b) {
+            if (a.getSyncId() == null || b.getSyncId() == null) {
+                return a.getSyncId() == null ? (b.getSyncId() == null ? 0 : -1) : 1;
+            }
+            return a.getSyncId().compareTo(b.getSyncId());
+        }
+    };
+
+    // order of the remote delta, the resume key is the last pulled object
+    private static final Comparator<Pair<?, ParseObject>> DELTA_ORDER = new Comparator<Pair<?, ParseObject>>() {
+        @Override
+        public int compare(Pair<?, ParseObject> a, Pair<?, ParseObject> b) {
+            int result = a.second.getUpdatedAt().compareTo(b.second.getUpdatedAt());
+            return result != 0 ? result : a.second.getObjectId().compareTo(b.second.getObjectId());
+        }
+    };
+
+    public static final int DEFAULT_LOCAL_BATCH_SIZE = 500;
+    public static final int DEFAULT_REMOTE_BATCH_SIZE = 50;
+    public static final int DEFAULT_REMOTE_PAGE_SIZE = ParseTools.MAX_PARSE_QUERY_LIMIT;
+    public static final int DEFAULT_STREAM_CAPACITY = 2;
+    public static final int DEFAULT_PARALLELISM = 4;
 
     private Date lastSyncDate = new Date(0);
     private String userId = null;
     private OrmLiteSqliteOpenHelper dbHelper = null;
     private String parseUserIdField = PARSE_USER_ID_FIELD;
     private String localUserIdField = DB_USER_ID_FIELD;
-
+    private int localBatchSize = DEFAULT_LOCAL_BATCH_SIZE;
+    private int remoteBatchSize = DEFAULT_REMOTE_BATCH_SIZE;
+    private int remotePageSize = DEFAULT_REMOTE_PAGE_SIZE;
+    private boolean streaming = false;
+    private int streamCapacity = DEFAULT_STREAM_CAPACITY;
+    private boolean bootstrap = false;
+    private DiffEngine diffEngine = DiffEngine.DEFAULT_DIFF_ENGINE;
+    private SyncTransport transport = new ParseTransport();
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private boolean useCheckpoints = false;
+    private boolean useOutbox = false;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private SyncMetrics metrics = new HistogramSyncMetrics();
+    private Dao<SyncCheckpoint, Long> checkpointDao = null;
 
     public SyncHelper(OrmLiteSqliteOpenHelper syncDatabaseHelper) {
         this.dbHelper = syncDatabaseHelper;
@@ -76,170 +143,1037 @@ public class SyncHelper {
         this.localUserIdField = localUserIdField;
     }
 
-    public <E extends SyncEntity> void synObjects(Class<E> entityClass) throws SyncException {
-        synObjects(entityClass, false, null);
+    public int getLocalBatchSize() {
+        return localBatchSize;
     }
 
-    public <E extends SyncEntity> void synObjects(Class<E> entityClass, boolean userAware) throws SyncException {
-        synObjects(entityClass, userAware, null);
+    /**
+     * Sets the number of objects saved locally in one transaction.
+     */
+    public void setLocalBatchSize(int localBatchSize) {
+        if (localBatchSize < 1) {
+            throw new IllegalArgumentException("localBatchSize must be positive");
+        }
+        this.localBatchSize = localBatchSize;
     }
 
-    public <E extends SyncEntity> void synObjects(final Class<E> entityClass, boolean userAware,
-                                                  final SyncCallback<E> callback) throws SyncException {
-        try {
-            final String parseClass = extractParseClass(entityClass);
-
-            // get updated remote objects
-            ParseQuery query = ParseQuery.getQuery(parseClass);
-            query.whereGreaterThan(PARSE_UPDATED_AT_FIELD, lastSyncDate);
-            if (userAware && userId != null)
-                query.whereEqualTo(PARSE_USER_ID_FIELD, userId);
-            //query.orderByAscending(PARSE_OBJECT_ID_FIELD);
-            final List<ParseObject> remoteObjects = ParseTools.findAllParseObjects(query);
-
-            // get updated local objects
-            final SyncDAO<E, ?> syncDao = dbHelper.getDao(entityClass);
-            QueryBuilder<E, ?> dbQuery = syncDao.queryBuilder();
-            //dbQuery.orderBy(DB_OBJECT_ID_FIELD, true);
-            Where<E, ?> where = dbQuery.where().gt(DB_UPDATED_AT_FIELD, lastSyncDate);
-            if (userAware && userId != null)
-                where.and().eq(DB_USER_ID_FIELD, userId);
-            final List<E> localObjects = where.query();
-
-                    // create local object map
-                    Map<String, E> localObjectMap = new HashMap<String, E>(localObjects.size());
-                    for (E localObject : localObjects) {
-                        localObjectMap.put(localObject.getSyncId(), localObject);
-                    }
+    public int getRemoteBatchSize() {
+        return remoteBatchSize;
+    }
 
-                    List<Pair<E, ParseObject>> toSaveLocally = new ArrayList<>();
-                    List<Pair<E, ParseObject>> toSaveRemotely = new ArrayList<>();
-
-                    for (ParseObject remoteObject : remoteObjects) {
-                        String syncId = remoteObject.getObjectId();
-                        E localObject = localObjectMap.get(syncId);
-
-                        if (localObject == null) {
-                            localObject = findBySyncId(syncDao, syncId);
-                            if (localObject == null) {
-                                // this object was created on the server but doesn't exist locally
-                                localObject = SyncEntity.fromParseObject(remoteObject, entityClass);
-                            } else {
-                                // the object exists locally but out-of-date
-                                SyncEntity.fromParseObject(remoteObject, localObject);
-                            }
-                            toSaveLocally.add(new Pair<>(localObject, remoteObject));
-                            continue;
-                        }
+    /**
+     * Sets the number of objects sent to Parse in one batch request.
+     */
+    public void setRemoteBatchSize(int remoteBatchSize) {
+        if (remoteBatchSize < 1) {
+            throw new IllegalArgumentException("remoteBatchSize must be positive");
+        }
+        this.remoteBatchSize = remoteBatchSize;
+    }
+
+    public int getRemotePageSize() {
+        return remotePageSize;
+    }
+
+    /**
+     * Sets the number of objects requested from Parse per page of the delta query.
+     */
+    public void setRemotePageSize(int remotePageSize) {
+        if (remotePageSize < 1 || remotePageSize > ParseTools.MAX_PARSE_QUERY_LIMIT) {
+            throw new IllegalArgumentException("remotePageSize must be between 1 and "
+                    + ParseTools.MAX_PARSE_QUERY_LIMIT);
+        }
+        this.remotePageSize = remotePageSize;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Enables the streaming mode: remote pages are merged and applied as soon as they are downloaded,
+     * while the next pages are being downloaded in background.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getStreamCapacity() {
+        return streamCapacity;
+    }
+
+    /**
+     * Sets the number of downloaded pages that may wait to be applied in the streaming mode.
+     */
+    public void setStreamCapacity(int streamCapacity) {
+        if (streamCapacity < 1) {
+            throw new IllegalArgumentException("streamCapacity must be positive");
+        }
+        this.streamCapacity = streamCapacity;
+    }
+
+    public boolean isBootstrap() {
+        return bootstrap;
+    }
+
+    /**
+     * Enables the bootstrap of empty tables: when the table of a synchronized class has no rows, e.g. on
+     * the first launch, remote pages are inserted as they are downloaded, without looking up local objects,
+     * one transaction per page. The indexes created by {@link SyncIndexes#ensure} are dropped before and
+     * recreated after the inserts, the indexes of the application are kept.
+     */
+    public void setBootstrap(boolean bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    public SyncTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the remote backend, {@link ParseTransport} by default.
+     *
+     * @see com.cardiomood.android.sync.transport.InMemoryTransport
+     */
+    public void setTransport(SyncTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport must not be null");
+        }
+        this.transport = transport;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy remote requests failed with transient errors are repeated by,
+     * {@link RetryPolicy#NONE} by default.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) {
+            throw new IllegalArgumentException("retryPolicy must not be null");
+        }
+        this.retryPolicy = retryPolicy;
+    }
+
+    public DiffEngine getDiffEngine() {
+        return diffEngine;
+    }
+
+    /**
+     * Sets the engine that matches the remote delta against the local one.
+     *
+     * @see HashDiffEngine
+     * @see IndexedDiffEngine
+     * @see MergeDiffEngine
+     * @see SqlDiffEngine
+     */
+    public void setDiffEngine(DiffEngine diffEngine) {
+        if (diffEngine == null) {
+            throw new IllegalArgumentException("diffEngine must not be null");
+        }
+        this.diffEngine = diffEngine;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of entity classes synchronized concurrently by {@link #syncAll(SyncPlan)}.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public SyncMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the receiver of timings and counts, a {@link HistogramSyncMetrics} by default.
+     * Use {@link SyncMetrics#NONE} to turn the measurements off.
+     */
+    public void setMetrics(SyncMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("metrics must not be null");
+        }
+        this.metrics = metrics;
+    }
+
+    public boolean isUseCheckpoints() {
+        return useCheckpoints;
+    }
+
+    /**
+     * Enables checkpoints stored in the {@link SyncCheckpoint#TABLE_NAME} table. Each Parse class
+     * and user gets its own checkpoint that advances only when the synchronization succeeds.
+     * {@code lastSyncDate} is then used only for classes that have not been synchronized yet.
+     * The checkpoint also records the pulled objects as they are saved, a synchronization
+     * that failed is resumed after the last saved object of the remote delta.
+     */
+    public void setUseCheckpoints(boolean useCheckpoints) {
+        this.useCheckpoints = useCheckpoints;
+    }
+
+    public boolean isUseOutbox() {
+        return useOutbox;
+    }
 
-                        if (localObject != null) {
-                            long localTime = (localObject.getSyncDate() == null)
-                                    ? 0L : localObject.getSyncDate().getTime();
-                            long remoteTime = (remoteObject.getUpdatedAt() == null)
-                                    ? 0L : remoteObject.getUpdatedAt().getTime();
-
-                            if (remoteTime > localTime) {
-                                // the remote object is newer
-                                SyncEntity.fromParseObject(remoteObject, localObject);
-                                toSaveLocally.add(new Pair<>(localObject, remoteObject));
-                            } else if (remoteTime < localTime) {
-                                // the local objects is newer
-                                SyncEntity.toParseObject(localObject, remoteObject);
-                                toSaveRemotely.add(new Pair<>(localObject, remoteObject));
+    /**
+     * Finds local changes in the outbox recorded by {@link SyncDAO} instead of scanning
+     * {@code sync_timestamp}. The outbox of each synchronized class must be enabled with
+     * {@link SyncDAO#setOutboxEnabled(boolean)} before the changes are made.
+     */
+    public void setUseOutbox(boolean useOutbox) {
+        this.useOutbox = useOutbox;
+    }
+
+    /**
+     * @return the stored checkpoint of the entity class or {@code null} if there is none
+     */
+    public <E extends SyncEntity> SyncCheckpoint getCheckpoint(Class<E> entityClass, boolean userAware)
+            throws SQLException {
+        String parseClass = EntityMapping.forClass(entityClass).getParseClassName();
+        return findCheckpoint(parseClass, userAware ? userId : null);
+    }
+
+    /**
+     * Creates the indexes the synchronization queries of the entity class need and verifies the
+     * query plans, see {@link SyncIndexes}. Call it once the table exists, e.g. from {@code onCreate()}
+     * and {@code onUpgrade()} of the database helper.
+     */
+    public <E extends SyncEntity> SyncIndexReport ensureIndexes(Class<E> entityClass, boolean userAware)
+            throws SQLException {
+        SyncDAO<E, ?> syncDao = dbHelper.getDao(entityClass);
+        return SyncIndexes.ensure(syncDao, userAware ? localUserIdField : null);
+    }
+
+    /**
+     * Creates and verifies the indexes of every class of the plan.
+     */
+    public List<SyncIndexReport> ensureIndexes(SyncPlan plan) throws SQLException {
+        List<SyncIndexReport> reports = new ArrayList<>();
+        for (SyncPlan.Entry<?> entry : plan.sortedEntries()) {
+            reports.add(ensureIndexes(entry.entityClass, entry.userAware));
+        }
+        return reports;
+    }
+
+    /**
+     * Reports whether the synchronization queries of the entity class would scan its table,
+     * without creating indexes.
+     */
+    public <E extends SyncEntity> SyncIndexReport verifyIndexes(Class<E> entityClass, boolean userAware)
+            throws SQLException {
+        SyncDAO<E, ?> syncDao = dbHelper.getDao(entityClass);
+        return SyncIndexes.verify(syncDao, userAware ? localUserIdField : null);
+    }
+
+    public List<SyncIndexReport> verifyIndexes(SyncPlan plan) throws SQLException {
+        List<SyncIndexReport> reports = new ArrayList<>();
+        for (SyncPlan.Entry<?> entry : plan.sortedEntries()) {
+            reports.add(verifyIndexes(entry.entityClass, entry.userAware));
+        }
+        return reports;
+    }
+
+    public <E extends SyncEntity> SyncResult synObjects(Class<E> entityClass) throws SyncException {
+        return synObjects(entityClass, false, null);
+    }
+
+    public <E extends SyncEntity> SyncResult synObjects(Class<E> entityClass, boolean userAware)
+            throws SyncException {
+        return synObjects(entityClass, userAware, null);
+    }
+
+    public <E extends SyncEntity> SyncResult synObjects(Class<E> entityClass, boolean userAware,
+                                                        SyncCallback<E> callback) throws SyncException {
+        return synObjects(entityClass, userAware, callback, diffEngine);
+    }
+
+    /**
+     * Synchronizes objects of the entity class using the specified diff engine instead of
+     * the configured one. The diff engine is not used in the streaming mode.
+     */
+    public <E extends SyncEntity> SyncResult synObjects(final Class<E> entityClass, boolean userAware,
+                                                        final SyncCallback<E> callback,
+                                                        DiffEngine diffEngine) throws SyncException {
+        SyncResult result = new SyncResult(entityClass);
+        synObjects(entityClass, userAware, callback, diffEngine, result);
+        return result;
+    }
+
+    /**
+     * Synchronizes the classes of the plan, up to {@code parallelism} classes at a time.
+     * A class whose dependency failed is skipped. Failures don't stop the other classes,
+     * check {@link SyncResult#isSuccessful()} of each result.
+     *
+     * @return results ordered so that every class follows its dependencies
+     */
+    public List<SyncResult> syncAll(SyncPlan plan) throws SyncException {
+        List<SyncPlan.Entry<?>> entries = plan.sortedEntries();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, entries.size())));
+        try {
+            Map<Class<?>, Task<SyncResult>> tasks = new HashMap<>(entries.size());
+            List<Task<SyncResult>> orderedTasks = new ArrayList<>(entries.size());
+            // synObjects reports its result even if it fails
+            final Set<Class<?>> reported = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+            for (final SyncPlan.Entry<?> entry : entries) {
+                final List<Task<SyncResult>> dependencies = new ArrayList<>(entry.dependencies.size());
+                for (Class<?> dependency : entry.dependencies) {
+                    dependencies.add(tasks.get(dependency));
+                }
+                Task<SyncResult> task = Task.whenAll(dependencies).continueWith(new Continuation<Void, SyncResult>() {
+                    @Override
+                    public SyncResult then(Task<Void> task) throws Exception {
+                        SyncResult result = new SyncResult(entry.entityClass);
+                        for (Task<SyncResult> dependency : dependencies) {
+                            if (dependency.isFaulted() || !dependency.getResult().isSuccessful()) {
+                                result.setSkipped(true);
+                                metrics.onResult(result);
+                                return result;
                             }
                         }
+                        reported.add(entry.entityClass);
+                        syncEntry(entry, result);
+                        return result;
                     }
-                    localObjectMap = null;
+                }, executor);
+                tasks.put(entry.entityClass, task);
+                orderedTasks.add(task);
+            }
 
-                    // create remote object map
-                    Map<String, ParseObject> remoteObjectMap = new HashMap<String, ParseObject>(remoteObjects.size());
-                    for (ParseObject remoteObject : remoteObjects) {
-                        remoteObjectMap.put(remoteObject.getObjectId(), remoteObject);
+            Task.whenAll(orderedTasks).waitForCompletion();
+            List<SyncResult> results = new ArrayList<>(orderedTasks.size());
+            for (int i = 0; i < orderedTasks.size(); i++) {
+                Task<SyncResult> task = orderedTasks.get(i);
+                SyncResult result = task.getResult();
+                if (task.isFaulted()) {
+                    result = new SyncResult(entries.get(i).entityClass);
+                    result.setError(task.getError());
+                    if (!reported.contains(result.getEntityClass())) {
+                        metrics.onResult(result);
                     }
+                }
+                results.add(result);
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Synchronization interrupted", ex);
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-                    for (E localObject : localObjects) {
-                        String syncId = localObject.getSyncId();
-                        if (syncId == null) {
-                            // a brand new object!
-                            ParseObject remoteObject = SyncEntity.toParseObject(localObject);
-                            toSaveRemotely.add(new Pair<>(localObject, remoteObject));
-                            continue;
-                        }
+    private <E extends SyncEntity> void syncEntry(SyncPlan.Entry<E> entry, SyncResult result) {
+        try {
+            synObjects(entry.entityClass, entry.userAware, entry.callback, diffEngine, result);
+        } catch (SyncException ex) {
+            result.setError(ex);
+        }
+    }
+
+    private <E extends SyncEntity> void synObjects(Class<E> entityClass, boolean userAware, SyncCallback<E> callback,
+                                                   DiffEngine diffEngine, SyncResult result) throws SyncException {
+        final long started = System.nanoTime();
+        try {
+            final Date syncStarted = new Date();
+            final SyncDiff<E> diff = newDiff(entityClass, userAware);
+            final DeltaQuery query = remoteDeltaQuery(diff);
 
-                        ParseObject remoteObject = remoteObjectMap.get(syncId);
-                        if (remoteObject == null && !localObject.isDeleted()) {
-                            // object was created locally but doesn't exist or too old on the server
-                            // this is weird because syncId is not null
+            List<ParseException> failures = new ArrayList<>();
+            if (bootstrap && isEmpty(diff)) {
+                bootstrapObjects(diff, query, callback, result);
+            } else if (streaming) {
+                streamObjects(diff, query, callback, result, failures);
+            } else {
+                diff.setRemoteObjects(findAllRemoteObjects(diff, query));
+                if (diffEngine instanceof HashDiffEngine) {
+                    loadLocalObjects(diff);
+                }
+                diffObjects(diff, diffEngine);
+                applyObjects(diff, callback, result, failures);
+            }
+            finishSync(diff, syncStarted, callback, result, failures);
+        } catch (Exception ex) {
+            SyncException error = (ex instanceof SyncException)
+                    ? (SyncException) ex : new SyncException("Synchronization failed", ex);
+            result.setError(error);
+            throw error;
+        } finally {
+            finishMetrics(result, started);
+        }
+    }
 
-                            // try to get it from server
-                            remoteObject = ParseObject.createWithoutData(parseClass, syncId).fetch();
-                            toSaveRemotely.add(new Pair<>(localObject, remoteObject));
-                            continue;
-                        }
+    private void finishMetrics(SyncResult result, long started) {
+        metrics.onPhase(result.getEntityClass(), SyncMetrics.Phase.TOTAL, System.nanoTime() - started);
+        metrics.onResult(result);
+    }
 
-                        if (remoteObject != null) {
-                            long localTime = (localObject.getSyncDate() == null)
-                                    ? 0L : localObject.getSyncDate().getTime();
-                            long remoteTime = (remoteObject.getUpdatedAt() == null)
-                                    ? 0L : remoteObject.getUpdatedAt().getTime();
-
-
-                            if (remoteTime > localTime) {
-                                // the remote object is newer
-                                SyncEntity.fromParseObject(remoteObject, localObject);
-                                toSaveLocally.add(new Pair<>(localObject, remoteObject));
-                            } else if (remoteTime < localTime) {
-                                // the local objects is newer
-                                SyncEntity.toParseObject(localObject, remoteObject);
-                                toSaveRemotely.add(new Pair<>(localObject, remoteObject));
-                            }
+    public <E extends SyncEntity> Task<SyncResult> synObjectsAsync(Class<E> entityClass, boolean userAware,
+                                                                   SyncCallback<E> callback) {
+        return synObjectsAsync(entityClass, userAware, callback, diffEngine);
+    }
+
+    /**
+     * Same as {@link #synObjects(Class, boolean, SyncCallback, DiffEngine)}, but doesn't block the caller.
+     * The remote and the local delta queries run concurrently, the diff and the changes are applied
+     * in continuations once both are done. The task fails with a {@link SyncException}.
+     */
+    public <E extends SyncEntity> Task<SyncResult> synObjectsAsync(final Class<E> entityClass,
+                                                                   final boolean userAware,
+                                                                   final SyncCallback<E> callback,
+                                                                   final DiffEngine diffEngine) {
+        if (streaming || bootstrap) {
+            // the stream already downloads pages in background while they are applied,
+            // the bootstrap is decided by the blocking path
+            return Task.callInBackground(new Callable<SyncResult>() {
+                @Override
+                public SyncResult call() throws Exception {
+                    return synObjects(entityClass, userAware, callback, diffEngine);
+                }
+            });
+        }
+
+        final long started = System.nanoTime();
+        final Date syncStarted = new Date();
+        final SyncResult result = new SyncResult(entityClass);
+        final List<ParseException> failures = new ArrayList<>();
+        return Task.callInBackground(new Callable<SyncDiff<E>>() {
+            @Override
+            public SyncDiff<E> call() throws Exception {
+                return newDiff(entityClass, userAware);
+            }
+        }).onSuccessTask(new Continuation<SyncDiff<E>, Task<SyncDiff<E>>>() {
+            @Override
+            public Task<SyncDiff<E>> then(Task<SyncDiff<E>> task) throws Exception {
+                final SyncDiff<E> diff = task.getResult();
+                final DeltaQuery query = remoteDeltaQuery(diff);
+                final Task<List<ParseObject>> remoteTask = Task.callInBackground(new Callable<List<ParseObject>>() {
+                    @Override
+                    public List<ParseObject> call() throws Exception {
+                        return findAllRemoteObjects(diff, query);
+                    }
+                });
+                // only the hash engine holds the local delta in memory, the others query it their own way
+                Task<Void> localTask = Task.forResult(null);
+                if (diffEngine instanceof HashDiffEngine) {
+                    localTask = Task.callInBackground(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            loadLocalObjects(diff);
+                            return null;
                         }
+                    });
+                }
+                return Task.whenAll(Arrays.<Task<?>>asList(remoteTask, localTask)).onSuccess(
+                        new Continuation<Void, SyncDiff<E>>() {
+                            @Override
+                            public SyncDiff<E> then(Task<Void> task) throws Exception {
+                                diff.setRemoteObjects(remoteTask.getResult());
+                                diffObjects(diff, diffEngine);
+                                return diff;
+                            }
+                        }, Task.BACKGROUND_EXECUTOR);
+            }
+        }).onSuccess(new Continuation<SyncDiff<E>, SyncResult>() {
+            @Override
+            public SyncResult then(Task<SyncDiff<E>> task) throws Exception {
+                SyncDiff<E> diff = task.getResult();
+                applyObjects(diff, callback, result, failures);
+                finishSync(diff, syncStarted, callback, result, failures);
+                return result;
+            }
+        }, Task.BACKGROUND_EXECUTOR).continueWithTask(new Continuation<SyncResult, Task<SyncResult>>() {
+            @Override
+            public Task<SyncResult> then(Task<SyncResult> task) throws Exception {
+                if (task.isFaulted()) {
+                    SyncException error = (task.getError() instanceof SyncException)
+                            ? (SyncException) task.getError()
+                            : new SyncException("Synchronization failed", task.getError());
+                    result.setError(error);
+                    finishMetrics(result, started);
+                    return Task.forError(error);
+                }
+                finishMetrics(result, started);
+                return task;
+            }
+        });
+    }
+
+    private <E extends SyncEntity> SyncDiff<E> newDiff(Class<E> entityClass, boolean userAware)
+            throws SQLException {
+        final EntityMapping<E> mapping = EntityMapping.forClass(entityClass);
+        final SyncDAO<E, ?> syncDao = dbHelper.getDao(entityClass);
+        final String syncUserId = userAware ? userId : null;
+
+        SyncCheckpoint checkpoint = useCheckpoints
+                ? findCheckpoint(mapping.getParseClassName(), syncUserId) : null;
+        if (checkpoint == null) {
+            checkpoint = new SyncCheckpoint(mapping.getParseClassName(), syncUserId, lastSyncDate);
+        } else {
+            // the objects up to the resume key were applied by the failed synchronization
+            checkpoint.observe(checkpoint.getResumeUpdatedAt());
+        }
+        SyncDiff<E> diff = new SyncDiff<>(mapping, syncDao, dbHelper, checkpoint, localUserIdField, syncUserId);
+        if (useOutbox) {
+            if (!syncDao.isOutboxEnabled()) {
+                throw new IllegalStateException("Outbox of " + entityClass.getName() + " is not enabled");
+            }
+            // changes recorded from now on are left for the next synchronization
+            diff.setOutboxSeq(syncDao.getOutboxDao().queryRawValue("SELECT MAX(" + SyncOutboxEntry.SEQ_FIELD
+                    + ") FROM " + SyncOutboxEntry.TABLE_NAME + " WHERE " + SyncOutboxEntry.TABLE_NAME_FIELD
+                    + " = ?", syncDao.getTableInfo().getTableName()));
+        }
+        return diff;
+    }
+
+    /**
+     * Query of the remote objects modified since the checkpoint of the diff.
+     */
+    private DeltaQuery remoteDeltaQuery(SyncDiff<?> diff) {
+        DeltaQuery query = new DeltaQuery(diff.getMapping().getParseClassName(),
+                diff.getCheckpoint().getRemoteWatermark());
+        if (diff.getUserId() != null)
+            query.whereEqualTo(parseUserIdField, diff.getUserId());
+        return query;
+    }
+
+    private List<ParseObject> findAllRemoteObjects(SyncDiff<?> diff, DeltaQuery query) throws ParseException {
+        DeltaPager<ParseObject> pager = openDelta(diff, query);
+        List<ParseObject> result = new ArrayList<>();
+        while (pager.hasNext()) {
+            result.addAll(pager.next());
+        }
+        return result;
+    }
+
+    /**
+     * Opens the remote delta, after the resume key of the checkpoint if there is one.
+     */
+    private DeltaPager<ParseObject> openDelta(SyncDiff<?> diff, DeltaQuery query) {
+        SyncCheckpoint checkpoint = diff.getCheckpoint();
+        return new MeteredPager(remote().openDelta(query, remotePageSize,
+                checkpoint.getResumeUpdatedAt(), checkpoint.getResumeObjectId()),
+                diff.getMapping().getEntityClass());
+    }
+
+    private SyncTransport remote() {
+        return retryPolicy.getMaxAttempts() > 1 ? new RetryingTransport(transport, retryPolicy) : transport;
+    }
+
+    private <E extends SyncEntity> void loadLocalObjects(SyncDiff<E> diff) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            diff.setLocalObjects(diff.localDeltaQuery().query());
+        } finally {
+            metrics.onPhase(diff.getMapping().getEntityClass(), SyncMetrics.Phase.LOCAL_QUERY,
+                    System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Reports remote failures or stores the checkpoint of a successful synchronization.
+     */
+    private <E extends SyncEntity> void finishSync(SyncDiff<E> diff, Date syncStarted, SyncCallback<E> callback,
+                                                   SyncResult result, List<ParseException> failures)
+            throws Exception {
+        if (!failures.isEmpty()) {
+            throw new SyncException("Failed to save " + failures.size() + " of " + result.getPushed()
+                    + " objects remotely", failures.get(0));
+        }
+
+        if (diff.getOutboxSeq() != null) {
+            drainOutbox(diff);
+        }
+
+        if (useCheckpoints) {
+            diff.getCheckpoint().setLocalWatermark(syncStarted);
+            diff.getCheckpoint().advance();
+            getCheckpointDao().createOrUpdate(diff.getCheckpoint());
+        }
+
+        if (callback != null) {
+            callback.afterSync();
+        }
+    }
+
+    /**
+     * Query of the local objects modified since {@code since}.
+     *
+     * @param userId owner of the objects or {@code null} to query objects of all users
+     */
+    static <E extends SyncEntity> QueryBuilder<E, ?> localDeltaQuery(SyncDAO<E, ?> syncDao, Date since,
+                                                                    String userIdColumn, String userId)
+            throws SQLException {
+        QueryBuilder<E, ?> dbQuery = syncDao.queryBuilder();
+        Where<E, ?> where = dbQuery.where().gt(DB_UPDATED_AT_FIELD, since);
+        if (userId != null)
+            where.and().eq(userIdColumn, userId);
+        return dbQuery;
+    }
+
+    /**
+     * Query of the local objects recorded in the outbox up to {@code maxSeq}.
+     *
+     * @param userId owner of the objects or {@code null} to query objects of all users
+     */
+    static <E extends SyncEntity> QueryBuilder<E, ?> outboxDeltaQuery(SyncDAO<E, ?> syncDao, long maxSeq,
+                                                                     String userIdColumn, String userId)
+            throws SQLException {
+        // the outbox stores ids as text, OrmLite rejects sub-queries of another type than the id
+        QueryBuilder<E, ?> dbQuery = syncDao.queryBuilder();
+        Where<E, ?> where = dbQuery.where().raw("\"" + syncDao.getTableInfo().getIdField().getColumnName()
+                        + "\" IN (SELECT " + SyncOutboxEntry.ENTITY_ID_FIELD + " FROM " + SyncOutboxEntry.TABLE_NAME
+                        + " WHERE " + SyncOutboxEntry.TABLE_NAME_FIELD + " = ? AND " + SyncOutboxEntry.SEQ_FIELD + " <= ?)",
+                new SelectArg(SqlType.STRING, syncDao.getTableInfo().getTableName()),
+                new SelectArg(SqlType.LONG, maxSeq));
+        if (userId != null)
+            where.and().eq(userIdColumn, userId);
+        return dbQuery;
+    }
+
+    /**
+     * Removes the outbox entries of the synchronized objects.
+     */
+    private static <E extends SyncEntity> void drainOutbox(SyncDiff<E> diff) throws SQLException {
+        SyncDAO<E, ?> syncDao = diff.getSyncDao();
+        DeleteBuilder<SyncOutboxEntry, Long> drain = syncDao.getOutboxDao().deleteBuilder();
+        Where<SyncOutboxEntry, Long> where = drain.where()
+                .eq(SyncOutboxEntry.TABLE_NAME_FIELD, new SelectArg(syncDao.getTableInfo().getTableName()))
+                .and().le(SyncOutboxEntry.SEQ_FIELD, diff.getOutboxSeq());
+        if (diff.getUserId() != null) {
+            // changes of the other users have not been pushed
+            where.and().raw(SyncOutboxEntry.ENTITY_ID_FIELD + " IN (SELECT \""
+                            + syncDao.getTableInfo().getIdField().getColumnName() + "\" FROM \""
+                            + syncDao.getTableInfo().getTableName() + "\" WHERE \"" + diff.getUserIdColumn() + "\" = ?)",
+                    new SelectArg(SqlType.STRING, diff.getUserId()));
+        }
+        drain.delete();
+    }
+
+    /**
+     * Diffs the whole remote delta against the local delta.
+     */
+    private <E extends SyncEntity> void diffObjects(SyncDiff<E> diff, DiffEngine diffEngine) throws Exception {
+        observe(diff.getCheckpoint(), diff.getRemoteObjects());
+        long started = System.nanoTime();
+        try {
+            diffEngine.diff(diff);
+        } finally {
+            metrics.onPhase(diff.getMapping().getEntityClass(), SyncMetrics.Phase.DIFF, System.nanoTime() - started);
+        }
+        fetchMissing(diff);
+    }
+
+    /**
+     * Saves the objects the diff decided to pull locally and to push remotely.
+     */
+    private <E extends SyncEntity> void applyObjects(SyncDiff<E> diff, SyncCallback<E> callback,
+                                                     SyncResult result, List<ParseException> failures)
+            throws Exception {
+        List<Pair<E, ParseObject>> toSaveLocally = diff.getToSaveLocally();
+        List<Pair<E, ParseObject>> toSaveRemotely = diff.getToSaveRemotely();
+        if (callback != null) {
+            callback.beforeSync(toSaveLocally, toSaveRemotely);
+        }
+
+        saveLocally(diff, toSaveLocally, callback);
+        result.addPulled(toSaveLocally.size());
+        touchLocally(diff, diff.getToTouchLocally());
+        result.addTouched(diff.getToTouchLocally().size());
+        saveRemotely(diff, toSaveRemotely, callback, failures);
+        result.addPushed(toSaveRemotely.size());
+    }
+
+    /**
+     * Applies the remote delta page by page while it is being downloaded. Only the keys of
+     * the local delta and a few pages of the remote delta are held in memory.
+     * {@link SyncCallback#beforeSync(List, List)} is invoked for each applied page.
+     */
+    private <E extends SyncEntity> void streamObjects(SyncDiff<E> diff, DeltaQuery query,
+                                                      SyncCallback<E> callback, SyncResult result,
+                                                      List<ParseException> failures)
+            throws Exception {
+        final SyncDAO<E, ?> syncDao = diff.getSyncDao();
+        final Class<E> entityClass = diff.getMapping().getEntityClass();
+
+        // the first pages are downloaded while the local keys are loaded
+        ParsePageStream<ParseObject> stream = new ParsePageStream<>(openDelta(diff, query), streamCapacity).start();
+        Map<String, E> pendingObjects = new HashMap<>();
+        List<Object> pendingIds = new ArrayList<>();
+        try {
+            // keys of the local changes
+            long started = System.nanoTime();
+            QueryBuilder<E, ?> dbQuery = diff.localDeltaQuery();
+            dbQuery.selectColumns(syncDao.getTableInfo().getIdField().getColumnName(),
+                    DB_OBJECT_ID_FIELD, DB_DELETED_FIELD);
+            List<E> localKeys = dbQuery.query();
+            metrics.onPhase(entityClass, SyncMetrics.Phase.LOCAL_QUERY, System.nanoTime() - started);
+            for (E localObject : localKeys) {
+                if (localObject.getSyncId() == null) {
+                    pendingIds.add(syncDao.extractId(localObject));
+                } else {
+                    pendingObjects.put(localObject.getSyncId(), localObject);
+                }
+            }
+
+            List<ParseObject> page;
+            while ((page = stream.take()) != null) {
+                observe(diff.getCheckpoint(), page);
+                List<String> syncIds = new ArrayList<>(page.size());
+                for (ParseObject remoteObject : page) {
+                    syncIds.add(remoteObject.getObjectId());
+                }
+                started = System.nanoTime();
+                Map<String, E> knownObjectMap = syncDao.findBySyncIds(syncIds);
+                metrics.onPhase(entityClass, SyncMetrics.Phase.LOCAL_QUERY, System.nanoTime() - started);
+
+                SyncDiff<E> pageDiff = diff.copy();
+                for (ParseObject remoteObject : page) {
+                    String syncId = remoteObject.getObjectId();
+                    E localObject = knownObjectMap.get(syncId);
+                    boolean modifiedLocally = pendingObjects.remove(syncId) != null;
+                    if (localObject == null || !modifiedLocally) {
+                        // the object was created on the server or exists locally but out-of-date
+                        pageDiff.pull(localObject, remoteObject);
+                    } else {
+                        pageDiff.merge(localObject, remoteObject);
                     }
+                }
+                applyObjects(pageDiff, callback, result, failures);
+                if (useCheckpoints) {
+                    saveProgress(diff, page.get(page.size() - 1));
+                }
+            }
+        } finally {
+            stream.cancel();
+        }
 
-            if (callback != null) {
-                callback.beforeSync(toSaveLocally, toSaveRemotely);
+        // local changes that are not in the remote delta
+        for (E localObject : pendingObjects.values()) {
+            if (!localObject.isDeleted()) {
+                pendingIds.add(syncDao.extractId(localObject));
+            }
+        }
+        pendingObjects = null;
+        for (int from = 0; from < pendingIds.size(); from += MAX_QUERY_PARAMETERS) {
+            List<Object> ids = pendingIds.subList(from, Math.min(pendingIds.size(), from + MAX_QUERY_PARAMETERS));
+            SyncDiff<E> pageDiff = diff.copy();
+            long started = System.nanoTime();
+            Collection<E> localObjects = findByIds(syncDao, ids).values();
+            metrics.onPhase(entityClass, SyncMetrics.Phase.LOCAL_QUERY, System.nanoTime() - started);
+            for (E localObject : localObjects) {
+                if (localObject.getSyncId() == null) {
+                    pageDiff.push(localObject, null);
+                } else {
+                    pageDiff.fetch(localObject);
+                }
             }
+            fetchMissing(pageDiff);
+            applyObjects(pageDiff, callback, result, failures);
+        }
+    }
+
+    /**
+     * @return {@code true} if the table has no rows. Indexes dropped by a bootstrap that didn't finish
+     * are recreated first.
+     */
+    private boolean isEmpty(SyncDiff<?> diff) throws SQLException {
+        SyncDAO<?, ?> syncDao = diff.getSyncDao();
+        SyncIndexes.restoreIndexes(syncDao);
+        return syncDao.queryBuilder().selectColumns(syncDao.getTableInfo().getIdField().getColumnName())
+                .limit(1L).queryForFirst() == null;
+    }
 
-            for (Pair<E, ParseObject> p: toSaveLocally) {
-                final E localObject = p.first;
-                final ParseObject remoteObject = p.second;
-                TransactionManager.callInTransaction(dbHelper.getConnectionSource(), new Callable<Object>() {
+    /**
+     * Inserts the remote delta into the empty table page by page while it is being downloaded.
+     * There are no local objects to merge with or to push, and the deferred indexes are built
+     * once at the end instead of being updated on every insert.
+     */
+    private <E extends SyncEntity> void bootstrapObjects(SyncDiff<E> diff, DeltaQuery query,
+                                                         final SyncCallback<E> callback, SyncResult result)
+            throws Exception {
+        final SyncDAO<E, ?> syncDao = diff.getSyncDao();
+        SyncIndexes.deferIndexes(syncDao);
+        ParsePageStream<ParseObject> stream = new ParsePageStream<>(openDelta(diff, query), streamCapacity).start();
+        try {
+            List<ParseObject> page;
+            while ((page = stream.take()) != null) {
+                observe(diff.getCheckpoint(), page);
+                SyncDiff<E> pageDiff = diff.copy();
+                for (ParseObject remoteObject : page) {
+                    pageDiff.pull(null, remoteObject);
+                }
+                final List<Pair<E, ParseObject>> toSaveLocally = pageDiff.getToSaveLocally();
+                if (callback != null) {
+                    callback.beforeSync(toSaveLocally, pageDiff.getToSaveRemotely());
+                }
+                callInTransaction(diff, new Callable<Object>() {
                     @Override
                     public Object call() throws Exception {
-                        if (callback != null) {
-                            callback.onSaveLocally(localObject, remoteObject);
+                        for (Pair<E, ParseObject> p : toSaveLocally) {
+                            if (callback != null) {
+                                callback.onSaveLocally(p.first, p.second);
+                            }
+                            insertLocally(syncDao, p.first);
                         }
-                        syncDao.createOrUpdate(localObject);
                         return null;
                     }
                 });
+                result.addPulled(toSaveLocally.size());
+                if (useCheckpoints) {
+                    saveProgress(diff, page.get(page.size() - 1));
+                }
+            }
+        } finally {
+            stream.cancel();
+            long started = System.nanoTime();
+            try {
+                SyncIndexes.restoreIndexes(syncDao);
+            } finally {
+                metrics.onPhase(diff.getMapping().getEntityClass(), SyncMetrics.Phase.LOCAL_WRITE,
+                        System.nanoTime() - started);
+            }
+        }
+    }
+
+    /**
+     * Stores the key of the last applied remote object. The watermarks stay unchanged until
+     * the synchronization succeeds.
+     */
+    private void saveProgress(SyncDiff<?> diff, ParseObject lastApplied) throws SQLException {
+        SyncCheckpoint checkpoint = diff.getCheckpoint();
+        checkpoint.setResumeKey(lastApplied.getUpdatedAt(), lastApplied.getObjectId());
+        getCheckpointDao().createOrUpdate(checkpoint);
+    }
+
+    private static void observe(SyncCheckpoint checkpoint, List<ParseObject> remoteObjects) {
+        for (ParseObject remoteObject : remoteObjects) {
+            checkpoint.observe(remoteObject.getUpdatedAt());
+        }
+    }
+
+    private SyncCheckpoint findCheckpoint(String parseClass, String userId) throws SQLException {
+        return getCheckpointDao().queryBuilder().where()
+                .eq(SyncCheckpoint.PARSE_CLASS_FIELD, new SelectArg(parseClass))
+                .and().eq(SyncCheckpoint.USER_ID_FIELD,
+                        new SelectArg(userId == null ? SyncCheckpoint.ALL_USERS : userId))
+                .queryForFirst();
+    }
+
+    private synchronized Dao<SyncCheckpoint, Long> getCheckpointDao() throws SQLException {
+        if (checkpointDao == null) {
+            TableUtils.createTableIfNotExists(dbHelper.getConnectionSource(), SyncCheckpoint.class);
+            checkpointDao = DaoManager.createDao(dbHelper.getConnectionSource(), SyncCheckpoint.class);
+        }
+        return checkpointDao;
+    }
 
+    /**
+     * Fetches the remote versions of local objects that have a syncId but are not in the remote delta
+     * and pushes the local objects onto them.
+     */
+    private <E extends SyncEntity> void fetchMissing(SyncDiff<E> diff) throws ParseException {
+        List<E> missingObjects = diff.getMissingObjects();
+        if (missingObjects.isEmpty()) {
+            return;
+        }
+        String parseClass = diff.getMapping().getParseClassName();
+        List<String> missingSyncIds = new ArrayList<>(missingObjects.size());
+        for (E localObject : missingObjects) {
+            missingSyncIds.add(localObject.getSyncId());
+        }
+        Map<String, ParseObject> fetchedObjects;
+        long started = System.nanoTime();
+        try {
+            fetchedObjects = remote().fetchAll(parseClass, missingSyncIds);
+        } finally {
+            metrics.onPhase(diff.getMapping().getEntityClass(), SyncMetrics.Phase.REMOTE_FETCH,
+                    System.nanoTime() - started);
+        }
+        for (E localObject : missingObjects) {
+            ParseObject remoteObject = fetchedObjects.get(localObject.getSyncId());
+            if (remoteObject == null) {
+                // not found on the server, saving it will be reported as failed
+                remoteObject = ParseObject.createWithoutData(parseClass, localObject.getSyncId());
             }
+            diff.push(localObject, remoteObject);
+        }
+    }
 
-            for (Pair<E, ParseObject> p: toSaveRemotely) {
-                final E localObject = p.first;
-                final ParseObject remoteObject = p.second;
-                TransactionManager.callInTransaction(dbHelper.getConnectionSource(), new Callable<Object>() {
-                    @Override
-                    public Object call() throws Exception {
+    /**
+     * Saves the pulled objects in transactions of {@code localBatchSize}. With checkpoints, the objects
+     * are saved in the order of the remote delta and the resume key is stored after each transaction.
+     */
+    private <E extends SyncEntity> void saveLocally(SyncDiff<E> diff, List<Pair<E, ParseObject>> toSaveLocally,
+                                                    final SyncCallback<E> callback) throws SQLException {
+        final SyncDAO<E, ?> syncDao = diff.getSyncDao();
+        if (useCheckpoints) {
+            toSaveLocally = new ArrayList<>(toSaveLocally);
+            Collections.sort(toSaveLocally, DELTA_ORDER);
+        }
+        final int size = toSaveLocally.size();
+        for (int from = 0; from < size; from += localBatchSize) {
+            final List<Pair<E, ParseObject>> chunk = toSaveLocally.subList(from, Math.min(size, from + localBatchSize));
+            callInTransaction(diff, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    for (Pair<E, ParseObject> p : chunk) {
                         if (callback != null) {
-                            callback.onSaveRemotely(localObject, remoteObject);
+                            callback.onSaveLocally(p.first, p.second);
                         }
-                        remoteObject.save();
-                        if (localObject.getSyncId() == null) {
-                            SyncEntity.fromParseObject(remoteObject, localObject);
-                            syncDao.createOrUpdate(localObject);
-                        }
-                        return null;
+                        saveLocally(syncDao, p.first);
                     }
-                });
+                    return null;
+                }
+            });
+            if (useCheckpoints) {
+                saveProgress(diff, chunk.get(chunk.size() - 1).second);
             }
+        }
+    }
 
-            if (callback != null) {
-                callback.afterSync();
+    /**
+     * Sets the syncDate of objects whose content is already up-to-date, without rewriting the other columns.
+     */
+    private <E extends SyncEntity> void touchLocally(SyncDiff<E> diff, final List<Pair<E, ParseObject>> toTouchLocally)
+            throws SQLException {
+        if (toTouchLocally.isEmpty()) {
+            return;
+        }
+        final SyncDAO<E, ?> syncDao = diff.getSyncDao();
+        final SelectArg syncDate = new SelectArg();
+        final SelectArg id = new SelectArg();
+        UpdateBuilder<E, ?> updateBuilder = syncDao.updateBuilder();
+        updateBuilder.updateColumnValue(DB_UPDATED_AT_FIELD, syncDate)
+                .where().eq(syncDao.getTableInfo().getIdField().getColumnName(), id);
+        final PreparedUpdate<E> update = updateBuilder.prepare();
+        callInTransaction(diff, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                for (Pair<E, ParseObject> p : toTouchLocally) {
+                    p.first.setSyncDate(p.second.getUpdatedAt());
+                    syncDate.setValue(p.first.getSyncDate());
+                    id.setValue(syncDao.extractId(p.first));
+                    syncDao.update(update);
+                }
+                return null;
             }
-        } catch (Exception ex) {
-            throw new SyncException("Synchronization failed", ex);
+        });
+    }
+
+    /**
+     * Saves objects in batches. Objects rejected by the server are added to {@code failures},
+     * the rest are saved anyway.
+     */
+    private <E extends SyncEntity> void saveRemotely(SyncDiff<E> diff,
+                                                     List<Pair<E, ParseObject>> toSaveRemotely,
+                                                     SyncCallback<E> callback,
+                                                     List<ParseException> failures) throws Exception {
+        final Class<E> entityClass = diff.getMapping().getEntityClass();
+        final SyncTransport remote = remote();
+        final int size = toSaveRemotely.size();
+        for (int from = 0; from < size; from += remoteBatchSize) {
+            List<Pair<E, ParseObject>> chunk = toSaveRemotely.subList(from, Math.min(size, from + remoteBatchSize));
+            List<ParseObject> remoteObjects = new ArrayList<>(chunk.size());
+            for (Pair<E, ParseObject> p : chunk) {
+                if (callback != null) {
+                    callback.onSaveRemotely(p.first, p.second);
+                }
+                remoteObjects.add(p.second);
+            }
+
+            List<Pair<E, ParseObject>> saved = chunk;
+            long started = System.nanoTime();
+            try {
+                remote.saveAll(remoteObjects);
+            } catch (ParseException ex) {
+                // find out which objects are rejected, the rest of the batch is still saved
+                saved = new ArrayList<>(chunk.size());
+                for (Pair<E, ParseObject> p : chunk) {
+                    metrics.onPhase(entityClass, SyncMetrics.Phase.REMOTE_SAVE, System.nanoTime() - started);
+                    started = System.nanoTime();
+                    try {
+                        remote.save(p.second);
+                        saved.add(p);
+                    } catch (ParseException objectEx) {
+                        failures.add(objectEx);
+                        metrics.onFailure(entityClass, objectEx);
+                    }
+                }
+            } finally {
+                metrics.onPhase(entityClass, SyncMetrics.Phase.REMOTE_SAVE, System.nanoTime() - started);
+            }
+
+            writeBack(diff, saved);
+        }
+    }
+
+    /**
+     * Stores the server-assigned attributes of saved objects locally.
+     */
+    private <E extends SyncEntity> void writeBack(SyncDiff<E> diff, final List<Pair<E, ParseObject>> saved)
+            throws SQLException {
+        final SyncDAO<E, ?> syncDao = diff.getSyncDao();
+        callInTransaction(diff, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                for (Pair<E, ParseObject> p : saved) {
+                    E localObject = p.first;
+                    ParseObject remoteObject = p.second;
+                    if (localObject.getSyncId() == null) {
+                        localObject.setSyncId(remoteObject.getObjectId());
+                        localObject.setCreationDate(remoteObject.getCreatedAt());
+                    }
+                    localObject.setSyncDate(remoteObject.getUpdatedAt());
+                    saveLocally(syncDao, localObject);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void callInTransaction(SyncDiff<?> diff, Callable<?> callable) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            TransactionManager.callInTransaction(dbHelper.getConnectionSource(), callable);
+        } finally {
+            metrics.onPhase(diff.getMapping().getEntityClass(), SyncMetrics.Phase.LOCAL_WRITE,
+                    System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Same as {@link Dao#createOrUpdate(Object)}, but skips the existence query
+     * when the decision can be made from the id.
+     */
+    static <E extends SyncEntity> void saveLocally(SyncDAO<E, ?> syncDao, E entity) throws SQLException {
+        SyncDAO.setSyncWrite(true);
+        try {
+            if (syncDao.extractId(entity) == null || syncDao.update(entity) == 0) {
+                syncDao.create(entity);
+            }
+        } finally {
+            SyncDAO.setSyncWrite(false);
+        }
+    }
+
+    /**
+     * Inserts a pulled object that is known not to exist locally.
+     */
+    private static <E extends SyncEntity> void insertLocally(SyncDAO<E, ?> syncDao, E entity) throws SQLException {
+        SyncDAO.setSyncWrite(true);
+        try {
+            syncDao.create(entity);
+        } finally {
+            SyncDAO.setSyncWrite(false);
         }
     }
 
@@ -249,6 +1183,82 @@ public class SyncHelper {
         );
     }
 
+    /**
+     * Finds local objects by their syncIds with as few queries as possible.
+     *
+     * @return map of syncId to the local object, syncIds not found locally are absent
+     */
+    public static <E extends SyncEntity> Map<String, E> findBySyncIds(Dao<E, ?> dao, Collection<String> syncIds)
+            throws SQLException {
+        Map<String, E> result = new HashMap<>(syncIds.size());
+        List<SelectArg> args = new ArrayList<>(Math.min(syncIds.size(), MAX_QUERY_PARAMETERS));
+        Iterator<String> it = syncIds.iterator();
+        while (it.hasNext()) {
+            args.add(new SelectArg(it.next()));
+            if (args.size() == MAX_QUERY_PARAMETERS || !it.hasNext()) {
+                for (E entity : dao.queryBuilder().where().in(DB_OBJECT_ID_FIELD, args).query()) {
+                    result.put(entity.getSyncId(), entity);
+                }
+                args.clear();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #findBySyncIds(Dao, Collection)}, but keeps the order of the sorted syncIds.
+     *
+     * @return the local objects ordered by syncId, syncIds not found locally are absent
+     */
+    static <E extends SyncEntity> List<E> findBySyncIdsOrdered(Dao<E, ?> dao, List<String> sortedSyncIds)
+            throws SQLException {
+        List<E> result = new ArrayList<>(sortedSyncIds.size());
+        for (int from = 0; from < sortedSyncIds.size(); from += MAX_QUERY_PARAMETERS) {
+            List<SelectArg> args = new ArrayList<>(Math.min(sortedSyncIds.size() - from, MAX_QUERY_PARAMETERS));
+            for (String syncId : sortedSyncIds.subList(from, Math.min(sortedSyncIds.size(), from + MAX_QUERY_PARAMETERS))) {
+                args.add(new SelectArg(syncId));
+            }
+            List<E> chunk = dao.queryBuilder().orderBy(DB_OBJECT_ID_FIELD, true).where().in(DB_OBJECT_ID_FIELD, args).query();
+            // each chunk covers a range of syncIds, sorting it by the Java order keeps the chunks in sequence
+            Collections.sort(chunk, SyncHelper.<E>syncIdOrder());
+            result.addAll(chunk);
+        }
+        return result;
+    }
+
+    /**
+     * @return order by syncId, objects without a syncId first
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends SyncEntity> Comparator<E> syncIdOrder() {
+        return (Comparator<E>) SYNC_ID_ORDER;
+    }
+
+    /**
+     * Finds local objects by their ids, {@code null} ids are ignored.
+     *
+     * @return map of id to the local object
+     */
+    static <E extends SyncEntity> Map<Object, E> findByIds(SyncDAO<E, ?> dao, List<Object> ids) throws SQLException {
+        String idColumn = dao.getTableInfo().getIdField().getColumnName();
+        Map<Object, E> result = new HashMap<>(ids.size());
+        List<SelectArg> args = new ArrayList<>(Math.min(ids.size(), MAX_QUERY_PARAMETERS));
+        Iterator<Object> it = ids.iterator();
+        while (it.hasNext()) {
+            Object id = it.next();
+            if (id != null) {
+                args.add(new SelectArg(id));
+            }
+            if (!args.isEmpty() && (args.size() == MAX_QUERY_PARAMETERS || !it.hasNext())) {
+                for (E entity : dao.queryBuilder().where().in(idColumn, args).query()) {
+                    result.put(dao.extractId(entity), entity);
+                }
+                args.clear();
+            }
+        }
+        return result;
+    }
+
     public static String extractParseClass(Class entityClass) {
         ParseClass annotation = (ParseClass) entityClass.getAnnotation(ParseClass.class);
         if (annotation == null) {
@@ -258,6 +1268,45 @@ public class SyncHelper {
         return annotation.name();
     }
 
+    /**
+     * Reports every page of the delta as a {@link SyncMetrics.Phase#REMOTE_PAGE}.
+     */
+    private class MeteredPager implements DeltaPager<ParseObject> {
+
+        private final DeltaPager<ParseObject> pager;
+        private final Class<? extends SyncEntity> entityClass;
+
+        MeteredPager(DeltaPager<ParseObject> pager, Class<? extends SyncEntity> entityClass) {
+            this.pager = pager;
+            this.entityClass = entityClass;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pager.hasNext();
+        }
+
+        @Override
+        public List<ParseObject> next() throws ParseException {
+            long started = System.nanoTime();
+            try {
+                return pager.next();
+            } finally {
+                metrics.onPhase(entityClass, SyncMetrics.Phase.REMOTE_PAGE, System.nanoTime() - started);
+            }
+        }
+
+        @Override
+        public Date getLastUpdatedAt() {
+            return pager.getLastUpdatedAt();
+        }
+
+        @Override
+        public String getLastObjectId() {
+            return pager.getLastObjectId();
+        }
+    }
+
     public static interface SyncCallback<E extends SyncEntity> {
 
         void onSaveLocally(E localObject, ParseObject remoteObject) throws Exception;
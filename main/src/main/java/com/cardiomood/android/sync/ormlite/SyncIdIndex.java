@@ -0,0 +1,51 @@
+package com.cardiomood.android.sync.ormlite;
+
+/**
+ * Open-addressed hash table of syncIds to positions in an array, without boxing or entry objects.
+ * The keys are the strings of the caller, they are not copied.
+ */
+final class SyncIdIndex {
+
+    private final String[] keys;
+    private final int[] positions;
+    private final int mask;
+
+    /**
+     * @param expectedSize maximum number of keys, the table is kept at most half full
+     */
+    SyncIdIndex(int expectedSize) {
+        int capacity = 2;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Maps the key to the position, replacing the previous position of the key.
+     */
+    void put(String key, int position) {
+        int i = slot(key);
+        keys[i] = key;
+        positions[i] = position;
+    }
+
+    /**
+     * @return position of the key or -1 if it's not in the index
+     */
+    int get(String key) {
+        int i = slot(key);
+        return keys[i] == null ? -1 : positions[i];
+    }
+
+    private int slot(String key) {
+        int h = key.hashCode();
+        int i = (h ^ (h >>> 16)) & mask;
+        while (keys[i] != null && !keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,83 @@
+package com.cardiomood.android.sync.ormlite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes created for the table of one entity class and the query plans of its synchronization queries.
+ *
+ * @see SyncIndexes
+ */
+public class SyncIndexReport {
+
+    private final Class<? extends SyncEntity> entityClass;
+    private final String tableName;
+    private final List<String> createdIndexes = new ArrayList<>();
+    private final Map<String, List<String>> plans = new LinkedHashMap<>();
+    private final List<String> scanningQueries = new ArrayList<>();
+
+    SyncIndexReport(Class<? extends SyncEntity> entityClass, String tableName) {
+        this.entityClass = entityClass;
+        this.tableName = tableName;
+    }
+
+    public Class<? extends SyncEntity> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return names of the indexes that didn't exist before
+     */
+    public List<String> getCreatedIndexes() {
+        return Collections.unmodifiableList(createdIndexes);
+    }
+
+    void addCreatedIndex(String indexName) {
+        createdIndexes.add(indexName);
+    }
+
+    /**
+     * @return the details of {@code EXPLAIN QUERY PLAN} of each verified query, by query name
+     */
+    public Map<String, List<String>> getPlans() {
+        return Collections.unmodifiableMap(plans);
+    }
+
+    void addPlan(String query, List<String> plan, boolean scanning) {
+        plans.put(query, plan);
+        if (scanning) {
+            scanningQueries.add(query);
+        }
+    }
+
+    /**
+     * @return names of the queries that scan the whole table or one of its indexes
+     */
+    public List<String> getScanningQueries() {
+        return Collections.unmodifiableList(scanningQueries);
+    }
+
+    public boolean isScanning() {
+        return !scanningQueries.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(entityClass.getSimpleName()).append(" (").append(tableName).append("): ")
+                .append(isScanning() ? "scans in " + scanningQueries : "no scans");
+        if (!createdIndexes.isEmpty()) {
+            sb.append(", created ").append(createdIndexes);
+        }
+        for (Map.Entry<String, List<String>> plan : plans.entrySet()) {
+            sb.append("\n  ").append(plan.getKey()).append(": ").append(plan.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,266 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.QueryBuilder;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Creates the indexes the synchronization queries of an entity table need and verifies them with
+ * {@code EXPLAIN QUERY PLAN}:
+ * <ul>
+ *     <li>{@code <table>_sync_delta} on the user column (if user-aware), sync_timestamp, sync_id and deleted
+ *     serves the local delta. It covers the key columns the streaming mode and {@link IndexedDiffEngine}
+ *     read, so with an INTEGER PRIMARY KEY these never touch the table.</li>
+ *     <li>{@code <table>_sync_live} on the user column (if user-aware) and sync_timestamp, partial to rows that
+ *     are not deleted, serves the application's queries of live objects ({@code deleted = 0}) without
+ *     indexing the tombstones that accumulate. It needs SQLite 3.8.0 and is skipped on older versions.</li>
+ *     <li>{@code <table>_sync_id} on sync_id is created only if the table lacks the unique index declared
+ *     by {@link SyncEntity}, e.g. because it was created by an older schema.</li>
+ * </ul>
+ */
+public class SyncIndexes {
+
+    public static final String DELTA_INDEX_SUFFIX = "_sync_delta";
+    public static final String LIVE_INDEX_SUFFIX = "_sync_live";
+    public static final String SYNC_ID_INDEX_SUFFIX = "_sync_id";
+
+    // definitions of the indexes dropped while a table is bootstrapped
+    static final String DEFERRED_INDEX_TABLE = "sync_deferred_index";
+
+    static final String DELTA_QUERY = "local delta";
+    static final String KEY_QUERY = "local delta keys";
+    static final String OUTBOX_QUERY = "outbox delta";
+    static final String SYNC_ID_QUERY = "syncId lookup";
+
+    // plans don't depend on the values, the queries are explained with these
+    private static final String SAMPLE_USER_ID = "user";
+    private static final String SAMPLE_SYNC_ID = "syncId";
+
+    private SyncIndexes() {
+    }
+
+    /**
+     * Creates the missing indexes, then verifies the queries.
+     *
+     * @param userIdColumn column of the user id if the class is synchronized user-aware, {@code null} otherwise
+     */
+    public static <E extends SyncEntity> SyncIndexReport ensure(SyncDAO<E, ?> dao, String userIdColumn)
+            throws SQLException {
+        checkUserIdColumn(dao, userIdColumn);
+        String table = dao.getTableInfo().getTableName();
+        SyncIndexReport report = new SyncIndexReport(dao.getDataClass(), table);
+        Set<String> existing = existingIndexes(dao);
+
+        List<String> deltaColumns = new ArrayList<>();
+        if (userIdColumn != null) {
+            deltaColumns.add(userIdColumn);
+        }
+        deltaColumns.add(SyncHelper.DB_UPDATED_AT_FIELD);
+        List<String> liveColumns = new ArrayList<>(deltaColumns);
+        deltaColumns.add(SyncHelper.DB_OBJECT_ID_FIELD);
+        deltaColumns.add(SyncHelper.DB_DELETED_FIELD);
+
+        createIndex(dao, existing, report, table + DELTA_INDEX_SUFFIX, deltaColumns, null);
+        if (supportsPartialIndexes(dao)) {
+            createIndex(dao, existing, report, table + LIVE_INDEX_SUFFIX, liveColumns,
+                    quote(SyncHelper.DB_DELETED_FIELD) + " = 0");
+        }
+        if (isScanning(explain(dao, syncIdQuery(dao)))) {
+            List<String> syncIdColumns = new ArrayList<>(1);
+            syncIdColumns.add(SyncHelper.DB_OBJECT_ID_FIELD);
+            createIndex(dao, existing, report, table + SYNC_ID_INDEX_SUFFIX, syncIdColumns, null);
+        }
+
+        verify(dao, userIdColumn, report);
+        return report;
+    }
+
+    /**
+     * Verifies the queries without creating indexes.
+     *
+     * @param userIdColumn column of the user id if the class is synchronized user-aware, {@code null} otherwise
+     */
+    public static <E extends SyncEntity> SyncIndexReport verify(SyncDAO<E, ?> dao, String userIdColumn)
+            throws SQLException {
+        checkUserIdColumn(dao, userIdColumn);
+        SyncIndexReport report = new SyncIndexReport(dao.getDataClass(), dao.getTableInfo().getTableName());
+        verify(dao, userIdColumn, report);
+        return report;
+    }
+
+    private static <E extends SyncEntity> void verify(SyncDAO<E, ?> dao, String userIdColumn,
+                                                      SyncIndexReport report) throws SQLException {
+        String userId = userIdColumn == null ? null : SAMPLE_USER_ID;
+        QueryBuilder<E, ?> delta = SyncHelper.localDeltaQuery(dao, new Date(0), userIdColumn, userId);
+        addPlan(dao, report, DELTA_QUERY, delta.prepareStatementString());
+
+        QueryBuilder<E, ?> keys = SyncHelper.localDeltaQuery(dao, new Date(0), userIdColumn, userId);
+        keys.selectRaw(dao.getTableInfo().getIdField().getColumnName(), SyncHelper.DB_OBJECT_ID_FIELD,
+                SyncHelper.DB_UPDATED_AT_FIELD, SyncHelper.DB_DELETED_FIELD);
+        addPlan(dao, report, KEY_QUERY, keys.prepareStatementString());
+
+        if (dao.isOutboxEnabled()) {
+            // creates the outbox table if it doesn't exist yet
+            dao.getOutboxDao();
+            QueryBuilder<E, ?> outbox = SyncHelper.outboxDeltaQuery(dao, Long.MAX_VALUE, userIdColumn, userId);
+            addPlan(dao, report, OUTBOX_QUERY, outbox.prepareStatementString());
+        }
+
+        addPlan(dao, report, SYNC_ID_QUERY, syncIdQuery(dao));
+    }
+
+    private static void addPlan(SyncDAO<?, ?> dao, SyncIndexReport report, String name, String sql)
+            throws SQLException {
+        List<String> plan = explain(dao, sql);
+        report.addPlan(name, plan, isScanning(plan));
+    }
+
+    private static String syncIdQuery(SyncDAO<?, ?> dao) throws SQLException {
+        QueryBuilder<?, ?> query = dao.queryBuilder();
+        query.where().in(SyncHelper.DB_OBJECT_ID_FIELD, SAMPLE_SYNC_ID, SAMPLE_SYNC_ID + "2");
+        return query.prepareStatementString();
+    }
+
+    /**
+     * @return the detail column of each step of the plan
+     */
+    private static List<String> explain(SyncDAO<?, ?> dao, String sql) throws SQLException {
+        int parameters = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                parameters++;
+            }
+        }
+        String[] args = new String[parameters];
+        Arrays.fill(args, "");
+        List<String> plan = new ArrayList<>();
+        for (String[] row : dao.queryRaw("EXPLAIN QUERY PLAN " + sql, args).getResults()) {
+            // the detail is the last column in all versions
+            plan.add(row[row.length - 1]);
+        }
+        return plan;
+    }
+
+    /**
+     * A step like "SCAN TABLE t" or "SCAN t USING COVERING INDEX i" reads every row, "SEARCH" steps don't.
+     */
+    private static boolean isScanning(List<String> plan) {
+        for (String detail : plan) {
+            if (detail.startsWith("SCAN ") && !detail.startsWith("SCAN SUBQUERY")
+                    && !detail.startsWith("SCAN CONSTANT ROW")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void createIndex(SyncDAO<?, ?> dao, Set<String> existing, SyncIndexReport report,
+                                    String name, List<String> columns, String where) throws SQLException {
+        if (existing.contains(name)) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("CREATE INDEX IF NOT EXISTS ").append(quote(name))
+                .append(" ON ").append(quote(dao.getTableInfo().getTableName())).append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(quote(columns.get(i)));
+        }
+        sql.append(')');
+        if (where != null) {
+            sql.append(" WHERE ").append(where);
+        }
+        dao.executeRaw(sql.toString());
+        existing.add(name);
+        report.addCreatedIndex(name);
+    }
+
+    private static Set<String> existingIndexes(SyncDAO<?, ?> dao) throws SQLException {
+        Set<String> names = new HashSet<>();
+        for (String[] row : dao.queryRaw("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?",
+                dao.getTableInfo().getTableName()).getResults()) {
+            names.add(row[0]);
+        }
+        return names;
+    }
+
+    private static boolean supportsPartialIndexes(SyncDAO<?, ?> dao) throws SQLException {
+        String[] version = dao.queryRaw("SELECT sqlite_version()").getFirstResult()[0].split("\\.");
+        int major = Integer.parseInt(version[0]);
+        int minor = version.length > 1 ? Integer.parseInt(version[1]) : 0;
+        return major > 3 || (major == 3 && minor >= 8);
+    }
+
+    /**
+     * Drops the indexes created by {@link #ensure(SyncDAO, String)}, the indexes of the application are
+     * left alone. Their definitions are recorded in the same transaction, so that
+     * {@link #restoreIndexes(SyncDAO)} recreates them even if the process dies in between.
+     */
+    static void deferIndexes(final SyncDAO<?, ?> dao) throws SQLException {
+        createDeferredIndexTable(dao);
+        final String table = dao.getTableInfo().getTableName();
+        final Set<String> names = new HashSet<>(Arrays.asList(table + DELTA_INDEX_SUFFIX,
+                table + LIVE_INDEX_SUFFIX, table + SYNC_ID_INDEX_SUFFIX));
+        TransactionManager.callInTransaction(dao.getConnectionSource(), new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (String[] row : dao.queryRaw("SELECT name, sql FROM sqlite_master WHERE type = 'index'"
+                        + " AND tbl_name = ? AND sql IS NOT NULL", table).getResults()) {
+                    if (!names.contains(row[0])) {
+                        continue;
+                    }
+                    dao.executeRaw("INSERT OR REPLACE INTO " + DEFERRED_INDEX_TABLE
+                            + " (table_name, index_name, sql) VALUES (?, ?, ?)", table, row[0], row[1]);
+                    dao.executeRaw("DROP INDEX " + quote(row[0]));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Recreates the indexes dropped by {@link #deferIndexes(SyncDAO)}.
+     */
+    static void restoreIndexes(final SyncDAO<?, ?> dao) throws SQLException {
+        createDeferredIndexTable(dao);
+        final String table = dao.getTableInfo().getTableName();
+        final List<String[]> deferred = dao.queryRaw("SELECT sql FROM " + DEFERRED_INDEX_TABLE
+                + " WHERE table_name = ?", table).getResults();
+        if (deferred.isEmpty()) {
+            return;
+        }
+        TransactionManager.callInTransaction(dao.getConnectionSource(), new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (String[] row : deferred) {
+                    dao.executeRaw(row[0]);
+                }
+                dao.executeRaw("DELETE FROM " + DEFERRED_INDEX_TABLE + " WHERE table_name = ?", table);
+                return null;
+            }
+        });
+    }
+
+    private static void createDeferredIndexTable(SyncDAO<?, ?> dao) throws SQLException {
+        dao.executeRaw("CREATE TABLE IF NOT EXISTS " + DEFERRED_INDEX_TABLE
+                + " (table_name TEXT NOT NULL, index_name TEXT NOT NULL, sql TEXT NOT NULL,"
+                + " PRIMARY KEY (table_name, index_name))");
+    }
+
+    private static void checkUserIdColumn(SyncDAO<?, ?> dao, String userIdColumn) {
+        if (userIdColumn != null && !dao.getTableInfo().hasColumnName(userIdColumn)) {
+            throw new IllegalArgumentException(dao.getTableInfo().getTableName() + " has no column "
+                    + userIdColumn);
+        }
+    }
+
+    private static String quote(String name) {
+        return "\"" + name + "\"";
+    }
+}
@@ -0,0 +1,58 @@
+package com.cardiomood.android.sync.ormlite;
+
+/**
+ * Receives measurements of the synchronization. It's called from the synchronizing threads,
+ * concurrently when several classes are synchronized at once, so implementations must be
+ * thread-safe and fast.
+ *
+ * @see HistogramSyncMetrics
+ */
+public interface SyncMetrics {
+
+    public static final SyncMetrics NONE = new SyncMetrics() {
+        @Override
+        public void onPhase(Class<? extends SyncEntity> entityClass, Phase phase, long nanos) {
+        }
+
+        @Override
+        public void onFailure(Class<? extends SyncEntity> entityClass, Exception error) {
+        }
+
+        @Override
+        public void onResult(SyncResult result) {
+        }
+    };
+
+    public static enum Phase {
+        /** One query of local objects. */
+        LOCAL_QUERY,
+        /** One page of the remote delta, one request. */
+        REMOTE_PAGE,
+        /** Matching of the remote delta against the local one. */
+        DIFF,
+        /** One fetch of remote objects that are not in the remote delta, one request. */
+        REMOTE_FETCH,
+        /** One transaction writing local objects. */
+        LOCAL_WRITE,
+        /** One batch or single object saved remotely, one request. */
+        REMOTE_SAVE,
+        /** The whole synchronization of the class. */
+        TOTAL
+    }
+
+    /**
+     * Called when an operation of the phase is done, successfully or not.
+     */
+    void onPhase(Class<? extends SyncEntity> entityClass, Phase phase, long nanos);
+
+    /**
+     * Called for every object rejected by the server.
+     */
+    void onFailure(Class<? extends SyncEntity> entityClass, Exception error);
+
+    /**
+     * Called once per synchronized class, including the skipped and the failed ones.
+     */
+    void onResult(SyncResult result);
+
+}
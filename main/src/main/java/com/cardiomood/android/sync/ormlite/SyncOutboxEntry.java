@@ -0,0 +1,43 @@
+package com.cardiomood.android.sync.ormlite;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * A local object changed since the last synchronization, recorded by {@link SyncDAO}.
+ * There is at most one entry per object, a newer change replaces it with a higher sequence number.
+ */
+@DatabaseTable(tableName = SyncOutboxEntry.TABLE_NAME)
+public class SyncOutboxEntry {
+
+    public static final String TABLE_NAME = "sync_outbox";
+
+    static final String SEQ_FIELD = "seq";
+    static final String TABLE_NAME_FIELD = "table_name";
+    static final String ENTITY_ID_FIELD = "entity_id";
+
+    @DatabaseField(columnName = SEQ_FIELD, generatedId = true)
+    private Long seq;
+
+    @DatabaseField(columnName = TABLE_NAME_FIELD, canBeNull = false, uniqueCombo = true)
+    private String tableName;
+
+    @DatabaseField(columnName = ENTITY_ID_FIELD, canBeNull = false, uniqueCombo = true)
+    private String entityId;
+
+    SyncOutboxEntry() {
+        // for OrmLite
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+}
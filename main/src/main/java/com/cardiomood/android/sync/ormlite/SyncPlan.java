@@ -0,0 +1,97 @@
+package com.cardiomood.android.sync.ormlite;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Entity classes to synchronize with {@link SyncHelper#syncAll(SyncPlan)} and the order constraints
+ * between them. Classes that don't depend on each other are synchronized concurrently.
+ */
+public class SyncPlan {
+
+    private final Map<Class<? extends SyncEntity>, Entry<?>> entries = new LinkedHashMap<>();
+
+    public <E extends SyncEntity> SyncPlan add(Class<E> entityClass, boolean userAware) {
+        return add(entityClass, userAware, null);
+    }
+
+    public <E extends SyncEntity> SyncPlan add(Class<E> entityClass, boolean userAware,
+                                               SyncHelper.SyncCallback<E> callback) {
+        if (entries.containsKey(entityClass)) {
+            throw new IllegalArgumentException(entityClass.getName() + " is already in the plan");
+        }
+        entries.put(entityClass, new Entry<>(entityClass, userAware, callback));
+        return this;
+    }
+
+    /**
+     * Makes {@code entityClass} synchronize only after all {@code dependencies} have been synchronized
+     * successfully, e.g. children after their parents. Both must already be in the plan.
+     */
+    @SafeVarargs
+    public final SyncPlan dependsOn(Class<? extends SyncEntity> entityClass,
+                                    Class<? extends SyncEntity>... dependencies) {
+        Entry<?> entry = getEntry(entityClass);
+        for (Class<? extends SyncEntity> dependency : dependencies) {
+            getEntry(dependency);
+            entry.dependencies.add(dependency);
+        }
+        return this;
+    }
+
+    /**
+     * @return the entries ordered so that every entry follows its dependencies
+     * @throws IllegalStateException if the dependencies form a cycle
+     */
+    List<Entry<?>> sortedEntries() {
+        List<Entry<?>> sorted = new ArrayList<>(entries.size());
+        Set<Class<?>> done = new HashSet<>();
+        Set<Class<?>> visiting = new HashSet<>();
+        for (Entry<?> entry : entries.values()) {
+            visit(entry, done, visiting, sorted);
+        }
+        return sorted;
+    }
+
+    private void visit(Entry<?> entry, Set<Class<?>> done, Set<Class<?>> visiting, List<Entry<?>> sorted) {
+        if (done.contains(entry.entityClass)) {
+            return;
+        }
+        if (!visiting.add(entry.entityClass)) {
+            throw new IllegalStateException("Cyclic dependency on " + entry.entityClass.getName());
+        }
+        for (Class<? extends SyncEntity> dependency : entry.dependencies) {
+            visit(entries.get(dependency), done, visiting, sorted);
+        }
+        visiting.remove(entry.entityClass);
+        done.add(entry.entityClass);
+        sorted.add(entry);
+    }
+
+    private Entry<?> getEntry(Class<? extends SyncEntity> entityClass) {
+        Entry<?> entry = entries.get(entityClass);
+        if (entry == null) {
+            throw new IllegalArgumentException(entityClass.getName() + " is not in the plan");
+        }
+        return entry;
+    }
+
+    static class Entry<E extends SyncEntity> {
+
+        final Class<E> entityClass;
+        final boolean userAware;
+        final SyncHelper.SyncCallback<E> callback;
+        final Set<Class<? extends SyncEntity>> dependencies = new LinkedHashSet<>();
+
+        Entry(Class<E> entityClass, boolean userAware, SyncHelper.SyncCallback<E> callback) {
+            this.entityClass = entityClass;
+            this.userAware = userAware;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.cardiomood.android.sync.ormlite;
+
+/**
+ * Outcome of the synchronization of one entity class.
+ */
+public class SyncResult {
+
+    private final Class<? extends SyncEntity> entityClass;
+    private int pulled = 0;
+    private int pushed = 0;
+    private int touched = 0;
+    private boolean skipped = false;
+    private Exception error = null;
+
+    SyncResult(Class<? extends SyncEntity> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    public Class<? extends SyncEntity> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return number of objects saved locally
+     */
+    public int getPulled() {
+        return pulled;
+    }
+
+    void addPulled(int count) {
+        pulled += count;
+    }
+
+    /**
+     * @return number of objects sent to the server, including the rejected ones
+     */
+    public int getPushed() {
+        return pushed;
+    }
+
+    void addPushed(int count) {
+        pushed += count;
+    }
+
+    /**
+     * @return number of objects whose content was the same on both sides, only their syncDate was updated
+     */
+    public int getTouched() {
+        return touched;
+    }
+
+    void addTouched(int count) {
+        touched += count;
+    }
+
+    /**
+     * @return {@code true} if the class wasn't synchronized because one of its dependencies failed
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    void setSkipped(boolean skipped) {
+        this.skipped = skipped;
+    }
+
+    /**
+     * @return the error the synchronization failed with, {@code null} if it succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    void setError(Exception error) {
+        this.error = error;
+    }
+
+    public boolean isSuccessful() {
+        return !skipped && error == null;
+    }
+
+    @Override
+    public String toString() {
+        return entityClass.getSimpleName() + "{pulled=" + pulled + ", pushed=" + pushed + ", touched=" + touched
+                + (skipped ? ", skipped" : "") + (error != null ? ", error=" + error : "") + "}";
+    }
+}
@@ -0,0 +1,269 @@
+package com.cardiomood.android.sync.parse;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Performs the conversions of {@link SimpleParseValueConverter}, but resolves the conversion of each
+ * pair of source and target types once and caches it. Numbers are converted directly instead of
+ * through their string form. Unlike the string form, a whole floating-point number can be converted
+ * to an integral type; a fractional or out-of-range one fails with {@link NumberFormatException}.
+ */
+public class CachedParseValueConverter implements ParseValueConverter {
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<>();
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+
+        PRIMITIVE_DEFAULTS.put(boolean.class, Boolean.FALSE);
+        PRIMITIVE_DEFAULTS.put(char.class, '\u0000');
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(int.class, 0);
+        PRIMITIVE_DEFAULTS.put(long.class, 0L);
+        PRIMITIVE_DEFAULTS.put(float.class, 0.0f);
+        PRIMITIVE_DEFAULTS.put(double.class, 0.0d);
+    }
+
+    private static final Conversion IDENTITY = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            return value;
+        }
+    };
+
+    private static final Conversion UNSUPPORTED = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            return null;
+        }
+    };
+
+    private static final Conversion TO_STRING = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            return value.toString();
+        }
+    };
+
+    private static final Conversion NUMBER_TO_DATE = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            return new Date(((Number) value).longValue());
+        }
+    };
+
+    private static final Conversion DATE_TO_LONG = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            return ((Date) value).getTime();
+        }
+    };
+
+    private static final Conversion TO_BOOLEAN = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            return Boolean.valueOf(value.toString());
+        }
+    };
+
+    private static final Conversion TO_CHARACTER = new Conversion() {
+        @Override
+        Object convert(Object value) {
+            String s = value.toString();
+            return s.length() == 1 ? Character.valueOf(s.charAt(0)) : null;
+        }
+    };
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Conversion>> conversions =
+            new ConcurrentHashMap<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T convertValue(Object value, Class<T> targetClass) {
+        if (value == null) {
+            // 0 or FALSE for primitives, null otherwise
+            return (T) PRIMITIVE_DEFAULTS.get(targetClass);
+        }
+        return (T) getConversion(value.getClass(), targetClass).convert(value);
+    }
+
+    private Conversion getConversion(Class<?> sourceClass, Class<?> targetClass) {
+        ConcurrentMap<Class<?>, Conversion> bySource = conversions.get(targetClass);
+        if (bySource == null) {
+            bySource = new ConcurrentHashMap<>();
+            ConcurrentMap<Class<?>, Conversion> existing = conversions.putIfAbsent(targetClass, bySource);
+            if (existing != null) {
+                bySource = existing;
+            }
+        }
+        Conversion conversion = bySource.get(sourceClass);
+        if (conversion == null) {
+            // resolving twice in a race is harmless
+            conversion = resolve(sourceClass, targetClass);
+            bySource.put(sourceClass, conversion);
+        }
+        return conversion;
+    }
+
+    private static Conversion resolve(Class<?> sourceClass, Class<?> targetClass) {
+        Class<?> target = targetClass.isPrimitive() ? WRAPPERS.get(targetClass) : targetClass;
+        if (target.isAssignableFrom(sourceClass)) {
+            return IDENTITY;
+        }
+        if (String.class.equals(target)) {
+            return TO_STRING;
+        }
+        if (Date.class.equals(target)) {
+            return Number.class.isAssignableFrom(sourceClass) ? NUMBER_TO_DATE : UNSUPPORTED;
+        }
+        if (Long.class.equals(target) && Date.class.isAssignableFrom(sourceClass)) {
+            return DATE_TO_LONG;
+        }
+        if (Boolean.class.equals(target)) {
+            return TO_BOOLEAN;
+        }
+        if (Character.class.equals(target)) {
+            return TO_CHARACTER;
+        }
+        Conversion conversion = Number.class.isAssignableFrom(sourceClass)
+                ? fromNumber(target) : parse(target);
+        return conversion != null ? conversion : UNSUPPORTED;
+    }
+
+    private static Conversion fromNumber(Class<?> target) {
+        if (Byte.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return (byte) toLong((Number) value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+                }
+            };
+        }
+        if (Short.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return (short) toLong((Number) value, Short.MIN_VALUE, Short.MAX_VALUE);
+                }
+            };
+        }
+        if (Integer.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return (int) toLong((Number) value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                }
+            };
+        }
+        if (Long.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return toLong((Number) value, Long.MIN_VALUE, Long.MAX_VALUE);
+                }
+            };
+        }
+        if (Float.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return ((Number) value).floatValue();
+                }
+            };
+        }
+        if (Double.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return ((Number) value).doubleValue();
+                }
+            };
+        }
+        return null;
+    }
+
+    private static Conversion parse(Class<?> target) {
+        if (Byte.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return Byte.valueOf(value.toString());
+                }
+            };
+        }
+        if (Short.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return Short.valueOf(value.toString());
+                }
+            };
+        }
+        if (Integer.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return Integer.valueOf(value.toString());
+                }
+            };
+        }
+        if (Long.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return Long.valueOf(value.toString());
+                }
+            };
+        }
+        if (Float.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return Float.valueOf(value.toString());
+                }
+            };
+        }
+        if (Double.class.equals(target)) {
+            return new Conversion() {
+                @Override
+                Object convert(Object value) {
+                    return Double.valueOf(value.toString());
+                }
+            };
+        }
+        return null;
+    }
+
+    private static long toLong(Number number, long min, long max) {
+        if (number instanceof BigInteger && ((BigInteger) number).bitLength() > 63) {
+            throw new NumberFormatException("Value " + number + " can't be converted without loss");
+        }
+        long result = number.longValue();
+        boolean floating = number instanceof Double || number instanceof Float || number instanceof BigDecimal;
+        if (result < min || result > max || (floating && number.doubleValue() != result)) {
+            throw new NumberFormatException("Value " + number + " can't be converted without loss");
+        }
+        return result;
+    }
+
+    private static abstract class Conversion {
+
+        abstract Object convert(Object value);
+
+    }
+}
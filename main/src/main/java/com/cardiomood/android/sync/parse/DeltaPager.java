@@ -0,0 +1,25 @@
+package com.cardiomood.android.sync.parse;
+
+import com.parse.ParseException;
+import com.parse.ParseObject;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Pages through a delta ordered by (updatedAt, objectId).
+ */
+public interface DeltaPager<T extends ParseObject> {
+
+    boolean hasNext();
+
+    /**
+     * Requests the next page. Returns an empty list when there are no more objects.
+     */
+    List<T> next() throws ParseException;
+
+    Date getLastUpdatedAt();
+
+    String getLastObjectId();
+
+}
@@ -0,0 +1,102 @@
+package com.cardiomood.android.sync.parse;
+
+import com.parse.ParseException;
+import com.parse.ParseObject;
+import com.parse.ParseQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Pages through the results of a query ordered by (updatedAt, objectId). Each page continues
+ * after the last key of the previous one, so the cost of a page doesn't grow with its position
+ * and objects updated during the scan are neither missed nor repeated.
+ */
+public class KeysetPager<T extends ParseObject> implements DeltaPager<T> {
+
+    private static final String OBJECT_ID_FIELD = "objectId";
+    private static final String UPDATED_AT_FIELD = "updatedAt";
+
+    private final ParseQuery<T> query;
+    private final int pageSize;
+    private Date lastUpdatedAt;
+    private String lastObjectId;
+    private boolean exhausted = false;
+
+    /**
+     * @param query query without limit, skip or order
+     * @param pageSize number of objects per request, up to {@link ParseTools#MAX_PARSE_QUERY_LIMIT}
+     */
+    public KeysetPager(ParseQuery<T> query, int pageSize) {
+        this(query, pageSize, null, null);
+    }
+
+    /**
+     * Creates a pager that continues after the given key.
+     */
+    public KeysetPager(ParseQuery<T> query, int pageSize, Date lastUpdatedAt, String lastObjectId) {
+        if (pageSize < 1 || pageSize > ParseTools.MAX_PARSE_QUERY_LIMIT) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + ParseTools.MAX_PARSE_QUERY_LIMIT);
+        }
+        this.query = query;
+        this.pageSize = pageSize;
+        this.lastUpdatedAt = lastUpdatedAt;
+        this.lastObjectId = lastObjectId;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !exhausted;
+    }
+
+    @Override
+    public List<T> next() throws ParseException {
+        if (exhausted) {
+            return Collections.emptyList();
+        }
+        List<T> page = pageQuery().find();
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            T last = page.get(page.size() - 1);
+            lastUpdatedAt = last.getUpdatedAt();
+            lastObjectId = last.getObjectId();
+        }
+        return page;
+    }
+
+    @Override
+    public Date getLastUpdatedAt() {
+        return lastUpdatedAt;
+    }
+
+    @Override
+    public String getLastObjectId() {
+        return lastObjectId;
+    }
+
+    private ParseQuery<T> pageQuery() {
+        ParseQuery<T> page;
+        if (lastUpdatedAt == null || lastObjectId == null) {
+            page = new ParseQuery<T>(query);
+        } else {
+            // updatedAt > lastUpdatedAt OR (updatedAt = lastUpdatedAt AND objectId > lastObjectId)
+            ParseQuery<T> newer = new ParseQuery<T>(query);
+            newer.whereGreaterThan(UPDATED_AT_FIELD, lastUpdatedAt);
+            ParseQuery<T> sameTime = new ParseQuery<T>(query);
+            sameTime.whereEqualTo(UPDATED_AT_FIELD, lastUpdatedAt);
+            sameTime.whereGreaterThan(OBJECT_ID_FIELD, lastObjectId);
+            List<ParseQuery<T>> queries = new ArrayList<ParseQuery<T>>(2);
+            queries.add(newer);
+            queries.add(sameTime);
+            page = ParseQuery.or(queries);
+        }
+        page.orderByAscending(UPDATED_AT_FIELD);
+        page.addAscendingOrder(OBJECT_ID_FIELD);
+        page.setLimit(pageSize);
+        return page;
+    }
+}
@@ -0,0 +1,113 @@
+package com.cardiomood.android.sync.parse;
+
+import com.cardiomood.android.sync.tools.ReflectionUtils;
+import com.parse.ParseObject;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Date;
+
+/**
+ * Writes the server-managed attributes (objectId, createdAt, updatedAt) of a {@link ParseObject}.
+ *
+ * <p>Old Parse SDKs keep them in private fields of ParseObject, newer ones in an immutable
+ * ParseObject.State. The accessors for whichever layout is present are resolved once.
+ */
+public final class ParseObjectInternals {
+
+    private static final Field OBJECT_ID_FIELD;
+    private static final Field CREATED_AT_FIELD;
+    private static final Field UPDATED_AT_FIELD;
+
+    private static final Method GET_STATE_METHOD;
+    private static final Method SET_STATE_METHOD;
+    private static final Method NEW_BUILDER_METHOD;
+    private static final Method BUILDER_OBJECT_ID_METHOD;
+    private static final Method BUILDER_CREATED_AT_METHOD;
+    private static final Method BUILDER_UPDATED_AT_METHOD;
+    private static final Method BUILDER_BUILD_METHOD;
+
+    static {
+        OBJECT_ID_FIELD = openField("objectId");
+        CREATED_AT_FIELD = openField("createdAt");
+        UPDATED_AT_FIELD = openField("updatedAt");
+
+        Method getState = null;
+        Method setState = null;
+        Method newBuilder = null;
+        Method objectId = null;
+        Method createdAt = null;
+        Method updatedAt = null;
+        Method build = null;
+        if (OBJECT_ID_FIELD == null) {
+            try {
+                Class<?> stateClass = Class.forName(ParseObject.class.getName() + "$State");
+                Class<?> initClass = Class.forName(stateClass.getName() + "$Init");
+                getState = ParseObject.class.getDeclaredMethod("getState");
+                setState = ParseObject.class.getDeclaredMethod("setState", stateClass);
+                newBuilder = stateClass.getDeclaredMethod("newBuilder");
+                objectId = initClass.getDeclaredMethod("objectId", String.class);
+                createdAt = initClass.getDeclaredMethod("createdAt", Date.class);
+                updatedAt = initClass.getDeclaredMethod("updatedAt", Date.class);
+                build = initClass.getDeclaredMethod("build");
+                for (Method m : new Method[] {getState, setState, newBuilder, objectId, createdAt, updatedAt, build}) {
+                    m.setAccessible(true);
+                }
+            } catch (Exception ex) {
+                // unknown SDK layout: only the public API will be used
+                getState = null;
+            }
+        }
+        GET_STATE_METHOD = getState;
+        SET_STATE_METHOD = setState;
+        NEW_BUILDER_METHOD = newBuilder;
+        BUILDER_OBJECT_ID_METHOD = objectId;
+        BUILDER_CREATED_AT_METHOD = createdAt;
+        BUILDER_UPDATED_AT_METHOD = updatedAt;
+        BUILDER_BUILD_METHOD = build;
+    }
+
+    private ParseObjectInternals() {
+        // don't instantiate this!
+    }
+
+    /**
+     * Assigns the server-managed attributes of the given object. Null arguments are left untouched.
+     */
+    public static void setMetadata(ParseObject parseObject, String objectId, Date createdAt, Date updatedAt) {
+        if (objectId == null && createdAt == null && updatedAt == null) {
+            return;
+        }
+        try {
+            if (OBJECT_ID_FIELD != null) {
+                if (objectId != null)
+                    OBJECT_ID_FIELD.set(parseObject, objectId);
+                if (createdAt != null && CREATED_AT_FIELD != null)
+                    CREATED_AT_FIELD.set(parseObject, createdAt);
+                if (updatedAt != null && UPDATED_AT_FIELD != null)
+                    UPDATED_AT_FIELD.set(parseObject, updatedAt);
+            } else if (GET_STATE_METHOD != null) {
+                Object builder = NEW_BUILDER_METHOD.invoke(GET_STATE_METHOD.invoke(parseObject));
+                if (objectId != null)
+                    BUILDER_OBJECT_ID_METHOD.invoke(builder, objectId);
+                if (createdAt != null)
+                    BUILDER_CREATED_AT_METHOD.invoke(builder, createdAt);
+                if (updatedAt != null)
+                    BUILDER_UPDATED_AT_METHOD.invoke(builder, updatedAt);
+                SET_STATE_METHOD.invoke(parseObject, BUILDER_BUILD_METHOD.invoke(builder));
+            } else if (objectId != null) {
+                parseObject.setObjectId(objectId);
+            }
+        } catch (Exception ex) {
+            ReflectionUtils.handleReflectionException(ex);
+        }
+    }
+
+    private static Field openField(String name) {
+        Field field = ReflectionUtils.findField(ParseObject.class, name);
+        if (field != null) {
+            field.setAccessible(true);
+        }
+        return field;
+    }
+}
@@ -0,0 +1,104 @@
+package com.cardiomood.android.sync.parse;
+
+import com.parse.ParseObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+
+/**
+ * Downloads the pages of a {@link DeltaPager} in background while the caller consumes them.
+ * At most {@code capacity} downloaded pages wait in memory, the download is paused when
+ * the consumer falls behind. Downloads run on their own threads, so consumers may block
+ * the threads of a bounded pool such as the bolts background executor.
+ */
+public class ParsePageStream<T extends ParseObject> {
+
+    private static final ExecutorService DOWNLOADS = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ParsePageStream-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final DeltaPager<T> pager;
+    private final BlockingQueue<List<T>> queue;
+    private final List<T> endOfStream = new ArrayList<T>(0);
+    private volatile boolean cancelled = false;
+    private volatile Exception error = null;
+    private boolean finished = false;
+
+    public ParsePageStream(DeltaPager<T> pager, int capacity) {
+        this.pager = pager;
+        this.queue = new ArrayBlockingQueue<List<T>>(capacity);
+    }
+
+    public ParsePageStream<T> start() {
+        Task.call(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    while (!cancelled && pager.hasNext()) {
+                        List<T> page = pager.next();
+                        if (!page.isEmpty()) {
+                            put(page);
+                        }
+                    }
+                } catch (Exception ex) {
+                    error = ex;
+                }
+                put(endOfStream);
+                return null;
+            }
+        }, DOWNLOADS);
+        return this;
+    }
+
+    /**
+     * Waits for the next page.
+     *
+     * @return the next page or {@code null} when all pages are consumed
+     * @throws Exception the error the download failed with
+     */
+    public List<T> take() throws Exception {
+        if (finished) {
+            return null;
+        }
+        List<T> page = queue.take();
+        if (page == endOfStream) {
+            finished = true;
+            if (error != null) {
+                throw error;
+            }
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Stops the download. Must be called if the consumer gives up before the end of the stream.
+     */
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+    }
+
+    private void put(List<T> page) throws InterruptedException {
+        while (!cancelled && !queue.offer(page, 100, TimeUnit.MILLISECONDS)) {
+            // the consumer is busy
+        }
+    }
+}
@@ -8,7 +8,11 @@ import com.parse.ParseQuery;
 import com.parse.ParseUser;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import bolts.Task;
@@ -20,6 +24,9 @@ public final class ParseTools {
     }
 
     public static final int DEFAULT_PARSE_QUERY_LIMIT = 100;
+    public static final int MAX_PARSE_QUERY_LIMIT = 1000;
+
+    private static final String OBJECT_ID_FIELD = "objectId";
 
     public static String getUserFullName(ParseUser pu) {
         String fullName = pu.has("lastName") ? pu.getString("lastName") : "";
@@ -58,4 +65,92 @@ public final class ParseTools {
         } while (chunk.size() == query.getLimit());
         return result;
     }
+
+    public static <T extends ParseObject> Task<List<T>> findAllParseObjectsByKeysetAsync(final ParseQuery<T> query,
+                                                                                       final int pageSize) {
+        return Task.callInBackground(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return findAllParseObjectsByKeyset(query, pageSize);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #findAllParseObjects(ParseQuery)}, but pages through the results with
+     * a {@link KeysetPager} instead of using skip.
+     *
+     * @param query query without limit, skip or order
+     * @param pageSize number of objects per request, up to {@link #MAX_PARSE_QUERY_LIMIT}
+     */
+    public static <T extends ParseObject> List<T> findAllParseObjectsByKeyset(ParseQuery<T> query, int pageSize)
+            throws ParseException {
+        List<T> result = new ArrayList<T>();
+        KeysetPager<T> pager = new KeysetPager<T>(query, pageSize);
+        while (pager.hasNext()) {
+            result.addAll(pager.next());
+        }
+        return result;
+    }
+
+    /**
+     * Fetches objects by their ids with one query per {@link #DEFAULT_PARSE_QUERY_LIMIT} ids.
+     *
+     * @return map of objectId to the fetched object, ids not found on the server are absent
+     */
+    public static Map<String, ParseObject> fetchAllParseObjects(String className, Collection<String> objectIds)
+            throws ParseException {
+        Map<String, ParseObject> result = new HashMap<String, ParseObject>(objectIds.size());
+        List<String> chunk = new ArrayList<String>(Math.min(objectIds.size(), DEFAULT_PARSE_QUERY_LIMIT));
+        Iterator<String> it = objectIds.iterator();
+        while (it.hasNext()) {
+            chunk.add(it.next());
+            if (chunk.size() == DEFAULT_PARSE_QUERY_LIMIT || !it.hasNext()) {
+                ParseQuery<ParseObject> query = ParseQuery.getQuery(className);
+                query.whereContainedIn(OBJECT_ID_FIELD, chunk);
+                query.setLimit(chunk.size());
+                for (ParseObject parseObject : query.find()) {
+                    result.put(parseObject.getObjectId(), parseObject);
+                }
+                chunk.clear();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puts the value into the object only if it differs from the value the object already has,
+     * so that unchanged fields are not marked dirty and not sent on save. {@code null} removes the key.
+     */
+    public static void putIfChanged(ParseObject parseObject, String key, Object value) {
+        boolean known = parseObject.isDataAvailable() && parseObject.containsKey(key);
+        if (value == null) {
+            if (known || !parseObject.isDataAvailable()) {
+                parseObject.remove(key);
+            }
+            return;
+        }
+        if (known && sameValue(parseObject.get(key), value)) {
+            return;
+        }
+        parseObject.put(key, value);
+    }
+
+    private static boolean sameValue(Object remoteValue, Object value) {
+        if (remoteValue instanceof Number && value instanceof Number) {
+            // JSON numbers are decoded as Integer, Long or Double regardless of the field type
+            Number a = (Number) remoteValue;
+            Number b = (Number) value;
+            if (isIntegral(a) && isIntegral(b)) {
+                return a.longValue() == b.longValue();
+            }
+            return a.doubleValue() == b.doubleValue();
+        }
+        return value.equals(remoteValue);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte;
+    }
 }
@@ -2,7 +2,7 @@ package com.cardiomood.android.sync.parse;
 
 public interface ParseValueConverter {
 
-    public static final ParseValueConverter DEFAULT_VALUE_CONVERTER = new SimpleParseValueConverter();
+    public static final ParseValueConverter DEFAULT_VALUE_CONVERTER = new CachedParseValueConverter();
 
     <T> T convertValue(Object value, Class<T> targetClass);
 
@@ -51,7 +51,7 @@ public class SimpleParseValueConverter implements ParseValueConverter {
 
         if (Long.class.equals(targetClass)) {
             if (Date.class.isInstance(value)) {
-                return (T) Long.valueOf((Long) value);
+                return (T) Long.valueOf(((Date) value).getTime());
             }
         }
 
@@ -0,0 +1,38 @@
+package com.cardiomood.android.sync.transport;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remote objects of a class updated after a date, optionally restricted by field values.
+ */
+public class DeltaQuery {
+
+    private final String className;
+    private final Date updatedAfter;
+    private final Map<String, Object> equalTo = new LinkedHashMap<String, Object>();
+
+    public DeltaQuery(String className, Date updatedAfter) {
+        this.className = className;
+        this.updatedAfter = updatedAfter;
+    }
+
+    public DeltaQuery whereEqualTo(String key, Object value) {
+        equalTo.put(key, value);
+        return this;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public Date getUpdatedAfter() {
+        return updatedAfter;
+    }
+
+    public Map<String, Object> getEqualTo() {
+        return Collections.unmodifiableMap(equalTo);
+    }
+}
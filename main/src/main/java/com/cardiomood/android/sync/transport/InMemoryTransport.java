@@ -0,0 +1,349 @@
+package com.cardiomood.android.sync.transport;
+
+import com.cardiomood.android.sync.parse.DeltaPager;
+import com.cardiomood.android.sync.parse.ParseObjectInternals;
+import com.cardiomood.android.sync.parse.ParseTools;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps remote objects in memory, for running the synchronization without a Parse server.
+ * Every call counts as one request and may be delayed or failed on purpose. Objects are
+ * copied on the way in and out, like they would be serialized by a real server.
+ */
+public class InMemoryTransport implements SyncTransport {
+
+    private static final String ID_CHARS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final Comparator<ParseObject> DELTA_ORDER = new Comparator<ParseObject>() {
+        @Override
+        public int compare(ParseObject a, ParseObject b) {
+            int result = a.getUpdatedAt().compareTo(b.getUpdatedAt());
+            return result != 0 ? result : a.getObjectId().compareTo(b.getObjectId());
+        }
+    };
+
+    private final Map<String, Map<String, ParseObject>> classes = new HashMap<String, Map<String, ParseObject>>();
+    private final Set<String> rejectedObjectIds = new HashSet<String>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Random random;
+    private long lastTimestamp = 0L;
+
+    private volatile long latencyMillis = 0L;
+    private volatile int maxPageSize = ParseTools.MAX_PARSE_QUERY_LIMIT;
+    private volatile double failureRate = 0.0;
+
+    public InMemoryTransport() {
+        this(new Random());
+    }
+
+    /**
+     * @param random source of object ids and injected failures, seed it to get repeatable runs
+     */
+    public InMemoryTransport(Random random) {
+        this.random = random;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Sets the delay of every request.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        if (latencyMillis < 0) {
+            throw new IllegalArgumentException("latencyMillis must not be negative");
+        }
+        this.latencyMillis = latencyMillis;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    /**
+     * Sets the maximum number of objects returned per page, regardless of the requested page size.
+     */
+    public void setMaxPageSize(int maxPageSize) {
+        if (maxPageSize < 1) {
+            throw new IllegalArgumentException("maxPageSize must be positive");
+        }
+        this.maxPageSize = maxPageSize;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * Sets the probability of a request failing with {@link ParseException#CONNECTION_FAILED}.
+     */
+    public void setFailureRate(double failureRate) {
+        if (failureRate < 0.0 || failureRate > 1.0) {
+            throw new IllegalArgumentException("failureRate must be between 0 and 1");
+        }
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Makes saves of the object fail, as if the server rejected them.
+     */
+    public synchronized void rejectObject(String objectId) {
+        rejectedObjectIds.add(objectId);
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Stores an object directly, without counting a request. A new objectId and timestamps are
+     * assigned if it has no objectId.
+     */
+    public synchronized void put(ParseObject object) {
+        Map<String, ParseObject> objects = objectsOf(object.getClassName());
+        String objectId = object.getObjectId() != null ? object.getObjectId() : newObjectId(objects);
+        Date updatedAt = object.getUpdatedAt() != null ? object.getUpdatedAt() : nextTimestamp();
+        Date createdAt = object.getCreatedAt() != null ? object.getCreatedAt() : updatedAt;
+        ParseObjectInternals.setMetadata(object, objectId, createdAt, updatedAt);
+        objects.put(objectId, copy(object));
+    }
+
+    /**
+     * @return a copy of the stored object or {@code null}
+     */
+    public synchronized ParseObject get(String className, String objectId) {
+        ParseObject stored = objectsOf(className).get(objectId);
+        return stored == null ? null : copy(stored);
+    }
+
+    public synchronized int count(String className) {
+        return objectsOf(className).size();
+    }
+
+    @Override
+    public DeltaPager<ParseObject> openDelta(DeltaQuery query, int pageSize, Date lastUpdatedAt, String lastObjectId) {
+        return new Pager(query, Math.min(pageSize, maxPageSize), lastUpdatedAt, lastObjectId);
+    }
+
+    @Override
+    public Map<String, ParseObject> fetchAll(String className, Collection<String> objectIds) throws ParseException {
+        request();
+        synchronized (this) {
+            Map<String, ParseObject> objects = objectsOf(className);
+            Map<String, ParseObject> result = new HashMap<String, ParseObject>(objectIds.size());
+            for (String objectId : objectIds) {
+                ParseObject stored = objects.get(objectId);
+                if (stored != null) {
+                    result.put(objectId, copy(stored));
+                }
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public void saveAll(List<ParseObject> objects) throws ParseException {
+        request();
+        ParseException error = null;
+        synchronized (this) {
+            for (ParseObject object : objects) {
+                try {
+                    store(object);
+                } catch (ParseException ex) {
+                    error = ex;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public void save(ParseObject object) throws ParseException {
+        request();
+        synchronized (this) {
+            store(object);
+        }
+    }
+
+    private void request() throws ParseException {
+        requestCount.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ParseException(ParseException.CONNECTION_FAILED, "Interrupted");
+            }
+        }
+        if (failureRate > 0.0) {
+            boolean fail;
+            synchronized (this) {
+                fail = random.nextDouble() < failureRate;
+            }
+            if (fail) {
+                throw new ParseException(ParseException.CONNECTION_FAILED, "Injected failure");
+            }
+        }
+    }
+
+    private void store(ParseObject object) throws ParseException {
+        Map<String, ParseObject> objects = objectsOf(object.getClassName());
+        String objectId = object.getObjectId();
+        if (objectId != null && rejectedObjectIds.contains(objectId)) {
+            throw new ParseException(ParseException.OTHER_CAUSE, "Object " + objectId + " rejected");
+        }
+        Date updatedAt = nextTimestamp();
+        Date createdAt;
+        if (objectId == null) {
+            objectId = newObjectId(objects);
+            createdAt = updatedAt;
+        } else {
+            ParseObject existing = objects.get(objectId);
+            if (existing == null) {
+                throw new ParseException(ParseException.OBJECT_NOT_FOUND, "Object " + objectId + " not found");
+            }
+            createdAt = existing.getCreatedAt();
+        }
+        ParseObjectInternals.setMetadata(object, objectId, createdAt, updatedAt);
+        objects.put(objectId, copy(object));
+    }
+
+    private synchronized List<ParseObject> page(DeltaQuery query, int pageSize,
+                                                Date lastUpdatedAt, String lastObjectId) {
+        List<ParseObject> matching = new ArrayList<ParseObject>();
+        for (ParseObject object : objectsOf(query.getClassName()).values()) {
+            if (matches(object, query) && after(object, lastUpdatedAt, lastObjectId)) {
+                matching.add(object);
+            }
+        }
+        Collections.sort(matching, DELTA_ORDER);
+        List<ParseObject> page = new ArrayList<ParseObject>(Math.min(pageSize, matching.size()));
+        for (ParseObject object : matching.subList(0, Math.min(pageSize, matching.size()))) {
+            page.add(copy(object));
+        }
+        return page;
+    }
+
+    private static boolean matches(ParseObject object, DeltaQuery query) {
+        if (query.getUpdatedAfter() != null && !object.getUpdatedAt().after(query.getUpdatedAfter())) {
+            return false;
+        }
+        for (Map.Entry<String, Object> e : query.getEqualTo().entrySet()) {
+            Object value = object.get(e.getKey());
+            if (value == null ? e.getValue() != null : !value.equals(e.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean after(ParseObject object, Date lastUpdatedAt, String lastObjectId) {
+        if (lastUpdatedAt == null || lastObjectId == null) {
+            return true;
+        }
+        int result = object.getUpdatedAt().compareTo(lastUpdatedAt);
+        return result > 0 || (result == 0 && object.getObjectId().compareTo(lastObjectId) > 0);
+    }
+
+    private Map<String, ParseObject> objectsOf(String className) {
+        Map<String, ParseObject> objects = classes.get(className);
+        if (objects == null) {
+            objects = new HashMap<String, ParseObject>();
+            classes.put(className, objects);
+        }
+        return objects;
+    }
+
+    private String newObjectId(Map<String, ParseObject> objects) {
+        char[] chars = new char[10];
+        String objectId;
+        do {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = ID_CHARS.charAt(random.nextInt(ID_CHARS.length()));
+            }
+            objectId = new String(chars);
+        } while (objects.containsKey(objectId));
+        return objectId;
+    }
+
+    private Date nextTimestamp() {
+        // strictly increasing, so that keyset paging sees every save
+        lastTimestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+        return new Date(lastTimestamp);
+    }
+
+    private static ParseObject copy(ParseObject source) {
+        ParseObject copy = ParseObject.create(source.getClassName());
+        for (String key : source.keySet()) {
+            copy.put(key, source.get(key));
+        }
+        ParseObjectInternals.setMetadata(copy, source.getObjectId(), source.getCreatedAt(), source.getUpdatedAt());
+        return copy;
+    }
+
+    private class Pager implements DeltaPager<ParseObject> {
+
+        private final DeltaQuery query;
+        private final int pageSize;
+        private Date lastUpdatedAt;
+        private String lastObjectId;
+        private boolean exhausted = false;
+
+        Pager(DeltaQuery query, int pageSize, Date lastUpdatedAt, String lastObjectId) {
+            this.query = query;
+            this.pageSize = pageSize;
+            this.lastUpdatedAt = lastUpdatedAt;
+            this.lastObjectId = lastObjectId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !exhausted;
+        }
+
+        @Override
+        public List<ParseObject> next() throws ParseException {
+            if (exhausted) {
+                return Collections.emptyList();
+            }
+            request();
+            List<ParseObject> page = page(query, pageSize, lastUpdatedAt, lastObjectId);
+            if (page.size() < pageSize) {
+                exhausted = true;
+            }
+            if (!page.isEmpty()) {
+                ParseObject last = page.get(page.size() - 1);
+                lastUpdatedAt = last.getUpdatedAt();
+                lastObjectId = last.getObjectId();
+            }
+            return page;
+        }
+
+        @Override
+        public Date getLastUpdatedAt() {
+            return lastUpdatedAt;
+        }
+
+        @Override
+        public String getLastObjectId() {
+            return lastObjectId;
+        }
+    }
+}
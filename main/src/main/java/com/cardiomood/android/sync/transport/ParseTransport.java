@@ -0,0 +1,49 @@
+package com.cardiomood.android.sync.transport;
+
+import com.cardiomood.android.sync.parse.DeltaPager;
+import com.cardiomood.android.sync.parse.KeysetPager;
+import com.cardiomood.android.sync.parse.ParseTools;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+import com.parse.ParseQuery;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Talks to the Parse server through the Parse SDK.
+ */
+public class ParseTransport implements SyncTransport {
+
+    private static final String UPDATED_AT_FIELD = "updatedAt";
+
+    @Override
+    public DeltaPager<ParseObject> openDelta(DeltaQuery query, int pageSize,
+                                             Date lastUpdatedAt, String lastObjectId) {
+        ParseQuery<ParseObject> parseQuery = ParseQuery.getQuery(query.getClassName());
+        if (query.getUpdatedAfter() != null) {
+            parseQuery.whereGreaterThan(UPDATED_AT_FIELD, query.getUpdatedAfter());
+        }
+        for (Map.Entry<String, Object> e : query.getEqualTo().entrySet()) {
+            parseQuery.whereEqualTo(e.getKey(), e.getValue());
+        }
+        return new KeysetPager<ParseObject>(parseQuery, pageSize, lastUpdatedAt, lastObjectId);
+    }
+
+    @Override
+    public Map<String, ParseObject> fetchAll(String className, Collection<String> objectIds) throws ParseException {
+        return ParseTools.fetchAllParseObjects(className, objectIds);
+    }
+
+    @Override
+    public void saveAll(List<ParseObject> objects) throws ParseException {
+        ParseObject.saveAll(objects);
+    }
+
+    @Override
+    public void save(ParseObject object) throws ParseException {
+        object.save();
+    }
+}
@@ -0,0 +1,80 @@
+package com.cardiomood.android.sync.transport;
+
+import com.parse.ParseException;
+
+/**
+ * Decides which failed remote requests are repeated and how long to wait before each attempt.
+ * The delay grows exponentially from {@code initialDelayMillis} up to {@code maxDelayMillis}.
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0L, 1.0, 0L);
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final double multiplier;
+    private final long maxDelayMillis;
+
+    /**
+     * @param maxAttempts number of attempts including the first one
+     */
+    public RetryPolicy(int maxAttempts, long initialDelayMillis, double multiplier, long maxDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        if (initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("delays must satisfy 0 <= initialDelayMillis <= maxDelayMillis");
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.multiplier = multiplier;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @return {@code true} if the error may go away when the request is repeated:
+     * connection failures, timeouts, server errors and exceeded request limits
+     */
+    public boolean isRetryable(Exception error) {
+        if (!(error instanceof ParseException)) {
+            return false;
+        }
+        switch (((ParseException) error).getCode()) {
+            case ParseException.CONNECTION_FAILED:
+            case ParseException.TIMEOUT:
+            case ParseException.INTERNAL_SERVER_ERROR:
+            case ParseException.REQUEST_LIMIT_EXCEEDED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param attempt number of the failed attempt, starting with 1
+     * @return the delay before the next attempt
+     */
+    public long getDelayMillis(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+        return (long) Math.min(delay, maxDelayMillis);
+    }
+}
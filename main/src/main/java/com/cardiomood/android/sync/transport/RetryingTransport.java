@@ -0,0 +1,121 @@
+package com.cardiomood.android.sync.transport;
+
+import com.cardiomood.android.sync.parse.DeltaPager;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repeats the requests of another transport that fail with errors retryable by the {@link RetryPolicy}.
+ */
+public class RetryingTransport implements SyncTransport {
+
+    private final SyncTransport transport;
+    private final RetryPolicy policy;
+
+    public RetryingTransport(SyncTransport transport, RetryPolicy policy) {
+        this.transport = transport;
+        this.policy = policy;
+    }
+
+    @Override
+    public DeltaPager<ParseObject> openDelta(DeltaQuery query, int pageSize, Date lastUpdatedAt, String lastObjectId) {
+        return new RetryingPager(transport.openDelta(query, pageSize, lastUpdatedAt, lastObjectId));
+    }
+
+    @Override
+    public Map<String, ParseObject> fetchAll(final String className, final Collection<String> objectIds)
+            throws ParseException {
+        return call(new Request<Map<String, ParseObject>>() {
+            @Override
+            public Map<String, ParseObject> execute() throws ParseException {
+                return transport.fetchAll(className, objectIds);
+            }
+        });
+    }
+
+    @Override
+    public void saveAll(final List<ParseObject> objects) throws ParseException {
+        call(new Request<Void>() {
+            @Override
+            public Void execute() throws ParseException {
+                transport.saveAll(objects);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void save(final ParseObject object) throws ParseException {
+        call(new Request<Void>() {
+            @Override
+            public Void execute() throws ParseException {
+                transport.save(object);
+                return null;
+            }
+        });
+    }
+
+    private <T> T call(Request<T> request) throws ParseException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.execute();
+            } catch (ParseException ex) {
+                if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(ex)) {
+                    throw ex;
+                }
+                try {
+                    Thread.sleep(policy.getDelayMillis(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private interface Request<T> {
+
+        T execute() throws ParseException;
+
+    }
+
+    private class RetryingPager implements DeltaPager<ParseObject> {
+
+        private final DeltaPager<ParseObject> pager;
+
+        RetryingPager(DeltaPager<ParseObject> pager) {
+            this.pager = pager;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pager.hasNext();
+        }
+
+        @Override
+        public List<ParseObject> next() throws ParseException {
+            // a failed page leaves the position of the pager unchanged
+            return call(new Request<List<ParseObject>>() {
+                @Override
+                public List<ParseObject> execute() throws ParseException {
+                    return pager.next();
+                }
+            });
+        }
+
+        @Override
+        public Date getLastUpdatedAt() {
+            return pager.getLastUpdatedAt();
+        }
+
+        @Override
+        public String getLastObjectId() {
+            return pager.getLastObjectId();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.cardiomood.android.sync.transport;
+
+import com.cardiomood.android.sync.parse.DeltaPager;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remote operations used by {@link com.cardiomood.android.sync.ormlite.SyncHelper}.
+ */
+public interface SyncTransport {
+
+    /**
+     * Opens a pager over the delta, continuing after the given key if it's not {@code null}.
+     */
+    DeltaPager<ParseObject> openDelta(DeltaQuery query, int pageSize, Date lastUpdatedAt, String lastObjectId);
+
+    /**
+     * @return map of objectId to the fetched object, ids not found remotely are absent
+     */
+    Map<String, ParseObject> fetchAll(String className, Collection<String> objectIds) throws ParseException;
+
+    /**
+     * Saves objects in one batch and stores the assigned objectId, createdAt and updatedAt in them.
+     *
+     * @throws ParseException if any of the objects is rejected, the others may be saved anyway
+     */
+    void saveAll(List<ParseObject> objects) throws ParseException;
+
+    void save(ParseObject object) throws ParseException;
+
+}
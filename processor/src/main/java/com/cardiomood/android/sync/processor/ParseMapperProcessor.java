@@ -0,0 +1,304 @@
+package com.cardiomood.android.sync.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code <EntityClass>$$ParseMapper} for every {@code @ParseClass} entity extending
+ * {@code SyncEntity}, so that entity fields are copied without reflection.
+ *
+ * <p>Fields are accessed directly when visible from the entity package, otherwise through
+ * their getter and setter. Classes with a field that is reachable neither way are skipped and
+ * keep using the reflective mapping at runtime.
+ */
+public class ParseMapperProcessor extends AbstractProcessor {
+
+    static final String PARSE_CLASS = "com.cardiomood.android.sync.annotations.ParseClass";
+    static final String PARSE_FIELD = "com.cardiomood.android.sync.annotations.ParseField";
+    static final String SYNC_ENTITY = "com.cardiomood.android.sync.ormlite.SyncEntity";
+    static final String MAPPER_SUFFIX = "$$ParseMapper";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<String>(Arrays.asList(PARSE_CLASS, PARSE_FIELD));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement parseClass = processingEnv.getElementUtils().getTypeElement(PARSE_CLASS);
+        if (parseClass == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(parseClass)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            TypeElement entity = (TypeElement) element;
+            if (!isSyncEntity(entity)) {
+                note(entity, "not a subclass of " + SYNC_ENTITY);
+                continue;
+            }
+            if (!isVisible(entity)) {
+                note(entity, "class is not visible from its package");
+                continue;
+            }
+
+            List<FieldAccess> fields = new ArrayList<FieldAccess>();
+            String problem = collectFields(entity, fields);
+            if (problem != null) {
+                note(entity, problem);
+                continue;
+            }
+
+            try {
+                writeMapper(entity, fields);
+            } catch (IOException ex) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Failed to generate ParseMapper: " + ex.getMessage(), entity);
+            }
+        }
+        // @ParseField is read together with its @ParseClass
+        return true;
+    }
+
+    private String collectFields(TypeElement entity, List<FieldAccess> result) {
+        PackageElement entityPackage = processingEnv.getElementUtils().getPackageOf(entity);
+        TypeElement type = entity;
+        while (type != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                String parseName = parseFieldName(field);
+                if (parseName == null || field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                TypeMirror fieldType = processingEnv.getTypeUtils()
+                        .asMemberOf((DeclaredType) entity.asType(), field);
+                FieldAccess access = new FieldAccess(parseName, processingEnv.getTypeUtils().erasure(fieldType));
+                if (isAccessible(field, entityPackage) && !field.getModifiers().contains(Modifier.FINAL)) {
+                    access.getter = field.getSimpleName().toString();
+                    access.setter = access.getter;
+                    access.direct = true;
+                    if (type != entity) {
+                        // the field may be hidden by a subclass field of the same name
+                        access.target = "((" + type.getQualifiedName() + ") entity)";
+                    }
+                } else {
+                    access.getter = findAccessor(type, field, entityPackage, true);
+                    access.setter = findAccessor(type, field, entityPackage, false);
+                    if (access.getter == null || access.setter == null) {
+                        return "field " + field.getSimpleName() + " has no accessible getter and setter";
+                    }
+                }
+                result.add(access);
+            }
+            type = superclassOf(type);
+        }
+        return null;
+    }
+
+    private String findAccessor(TypeElement type, VariableElement field, PackageElement entityPackage,
+                                boolean getter) {
+        String name = field.getSimpleName().toString();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.STATIC) || !isAccessible(method, entityPackage)) {
+                continue;
+            }
+            String methodName = method.getSimpleName().toString();
+            if (getter) {
+                boolean named = methodName.equals("get" + capitalized)
+                        || (field.asType().getKind() == TypeKind.BOOLEAN && methodName.equals("is" + capitalized));
+                if (named && method.getParameters().isEmpty()
+                        && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                    return methodName;
+                }
+            } else {
+                if (methodName.equals("set" + capitalized) && method.getParameters().size() == 1
+                        && processingEnv.getTypeUtils().isSameType(
+                                method.getParameters().get(0).asType(), field.asType())) {
+                    return methodName;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeMapper(TypeElement entity, List<FieldAccess> fields) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(entity).toString();
+        String mapperName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                + MAPPER_SUFFIX;
+        String entityName = entity.getQualifiedName().toString();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("// Generated code from DataSync annotation processor. Do not modify!\n");
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("import com.cardiomood.android.sync.ormlite.ParseMapper;\n");
+        sb.append("import com.cardiomood.android.sync.parse.ParseTools;\n");
+        sb.append("import com.cardiomood.android.sync.parse.ParseValueConverter;\n");
+        sb.append("import com.parse.ParseObject;\n\n");
+        sb.append("public final class ").append(mapperName)
+                .append(" implements ParseMapper<").append(entityName).append("> {\n\n");
+        sb.append("    private final ParseValueConverter converter;\n\n");
+        sb.append("    public ").append(mapperName).append("(ParseValueConverter converter) {\n");
+        sb.append("        this.converter = converter;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    @SuppressWarnings(\"unchecked\")\n");
+        sb.append("    public void fromParseObject(ParseObject parseObject, ").append(entityName).append(" entity) {\n");
+        for (FieldAccess f : fields) {
+            String value = "converter.convertValue(parseObject.get(" + literal(f.parseName) + "), "
+                    + f.type + ".class)";
+            if (f.direct) {
+                sb.append("        ").append(f.target).append(".").append(f.setter)
+                        .append(" = ").append(value).append(";\n");
+            } else {
+                sb.append("        ").append(f.target).append(".").append(f.setter)
+                        .append("(").append(value).append(");\n");
+            }
+        }
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public void toParseObject(").append(entityName).append(" entity, ParseObject parseObject) {\n");
+        for (FieldAccess f : fields) {
+            String value = f.target + "." + f.getter + (f.direct ? "" : "()");
+            sb.append("        ParseTools.putIfChanged(parseObject, ").append(literal(f.parseName))
+                    .append(", ").append(value).append(");\n");
+        }
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        String sourceName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(sourceName, entity);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(sb.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private boolean isSyncEntity(TypeElement type) {
+        for (TypeElement t = superclassOf(type); t != null; t = superclassOf(t)) {
+            if (t.getQualifiedName().contentEquals(SYNC_ENTITY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isVisible(TypeElement type) {
+        if (!type.getTypeParameters().isEmpty()) {
+            return false;
+        }
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement t = (TypeElement) e;
+            if (t.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAccessible(Element member, PackageElement fromPackage) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        // package-private and protected members are visible within the same package only
+        return processingEnv.getElementUtils().getPackageOf(member).equals(fromPackage);
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement result = (TypeElement) ((DeclaredType) superclass).asElement();
+        return result.getQualifiedName().contentEquals("java.lang.Object") ? null : result;
+    }
+
+    private String parseFieldName(VariableElement field) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(PARSE_FIELD)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e
+                    : mirror.getElementValues().entrySet()) {
+                if (e.getKey().getSimpleName().contentEquals("name")) {
+                    String name = (String) e.getValue().getValue();
+                    if (name != null && !name.isEmpty()) {
+                        return name;
+                    }
+                }
+            }
+            return field.getSimpleName().toString();
+        }
+        return null;
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    private void note(Element element, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "ParseMapper not generated, reflection will be used: " + reason, element);
+    }
+
+    private static final class FieldAccess {
+
+        final String parseName;
+        final TypeMirror type;
+        String target = "entity";
+        String getter;
+        String setter;
+        boolean direct;
+
+        FieldAccess(String parseName, TypeMirror type) {
+            this.parseName = parseName;
+            this.type = type;
+        }
+    }
+}